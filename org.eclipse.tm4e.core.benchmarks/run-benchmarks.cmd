@@ -0,0 +1,26 @@
+@echo off
+:::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+:: Copyright (c) 2023 Vegard IT GmbH and others.
+:: All rights reserved. This program and the accompanying materials
+:: are made available under the terms of the Eclipse Public License v2.0
+:: which accompanies this distribution, and is available at
+:: https://www.eclipse.org/legal/epl-2.0/
+::
+:: Usage: run-benchmarks.cmd [JMH options], e.g.
+::   run-benchmarks.cmd GrammarBenchmark -p language=JAVA -p lines=1000
+:::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+setlocal
+
+cd /D "%~dp0.."
+
+:: build and install org.eclipse.tm4e.core into the local Maven repository
+call mvn clean install ^
+  -pl target-platform,org.eclipse.tm4e.core ^
+  -Djgit.dirtyWorkingTree=warning ^
+  -DskipTests || exit /b 1
+
+call mvn clean package -f org.eclipse.tm4e.core.benchmarks/pom.xml || exit /b 1
+
+:: -prof gc reports allocation rates (gc.alloc.rate.norm = bytes allocated per operation)
+java -jar org.eclipse.tm4e.core.benchmarks/target/benchmarks.jar -prof gc %*
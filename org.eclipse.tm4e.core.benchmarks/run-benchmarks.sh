@@ -0,0 +1,26 @@
+#!/bin/bash
+###############################################################################
+# Copyright (c) 2023 Vegard IT GmbH and others.
+# All rights reserved. This program and the accompanying materials
+# are made available under the terms of the Eclipse Public License v2.0
+# which accompanies this distribution, and is available at
+# https://www.eclipse.org/legal/epl-2.0/
+#
+# Usage: run-benchmarks.sh [JMH options], e.g.
+#   run-benchmarks.sh GrammarBenchmark -p language=JAVA -p lines=1000
+###############################################################################
+
+set -e
+
+cd "$(dirname "$0")/.."
+
+# build and install org.eclipse.tm4e.core into the local Maven repository
+mvn clean install \
+  -pl target-platform,org.eclipse.tm4e.core \
+  -Djgit.dirtyWorkingTree=warning \
+  -DskipTests
+
+mvn clean package -f org.eclipse.tm4e.core.benchmarks/pom.xml
+
+# -prof gc reports allocation rates (gc.alloc.rate.norm = bytes allocated per operation)
+java -jar org.eclipse.tm4e.core.benchmarks/target/benchmarks.jar -prof gc "$@"
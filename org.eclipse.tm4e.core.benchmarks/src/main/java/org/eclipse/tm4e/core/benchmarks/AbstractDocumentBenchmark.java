@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base class for benchmarks that process a whole document of a given {@link BenchmarkLanguage} and size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2048M", "-Xmx2048M", "-XX:+UseG1GC", "-Dfile.encoding=UTF-8" })
+@State(Scope.Benchmark)
+public abstract class AbstractDocumentBenchmark {
+
+	@Param({ "JAVA", "TYPESCRIPT", "MARKDOWN", "CPP" })
+	public BenchmarkLanguage language;
+
+	/** number of lines of the document to process */
+	@Param({ "1000", "10000" })
+	public int lines;
+
+	protected Registry registry;
+	protected IGrammar grammar;
+	protected String[] document;
+
+	@Setup
+	public void setupDocument() throws Exception {
+		registry = BenchmarkLanguage.createRegistry();
+		grammar = language.loadGrammar(registry);
+		document = language.createDocument(lines);
+		setup();
+	}
+
+	/**
+	 * Hook for subclasses to initialize additional state once {@link #grammar} and {@link #document} are available.
+	 */
+	protected void setup() throws Exception {
+	}
+}
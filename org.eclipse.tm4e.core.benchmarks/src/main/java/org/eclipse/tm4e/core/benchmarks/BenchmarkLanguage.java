@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IRegistryOptions;
+import org.eclipse.tm4e.core.registry.IThemeSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.w3c.dom.Element;
+
+/**
+ * The languages benchmarked, each backed by a grammar of the org.eclipse.tm4e.language_pack and a sample document.
+ */
+public enum BenchmarkLanguage {
+
+	JAVA("lngpck.source.java", "samples/benchmark/GrammarBenchmark.JavaFile.txt"),
+	TYPESCRIPT("lngpck.source.ts", "samples/raytracer.ts"),
+	MARKDOWN("lngpck.text.html.markdown", "samples/test.md.txt"),
+	CPP("lngpck.source.cpp", "samples/Sample.cpp.txt");
+
+	/**
+	 * scope name to resource mapping of all grammars of the language pack as declared in its plugin.xml
+	 */
+	private static final Map<String, String> GRAMMARS = readLanguagePackGrammars();
+
+	private static Map<String, String> readLanguagePackGrammars() {
+		try (var pluginXmlIS = BenchmarkLanguage.class.getResourceAsStream("language_pack/plugin.xml")) {
+			final var grammarElems = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pluginXmlIS)
+					.getElementsByTagName("grammar");
+			final var grammars = new HashMap<String, String>();
+			for (int i = 0; i < grammarElems.getLength(); i++) {
+				final var grammarElem = (Element) grammarElems.item(i);
+				grammars.put(grammarElem.getAttribute("scopeName"), "language_pack/" + grammarElem.getAttribute("path"));
+			}
+			return grammars;
+		} catch (final Exception ex) {
+			throw new IllegalStateException("Reading grammars of the language pack failed", ex);
+		}
+	}
+
+	public final String scopeName;
+	private final String sampleResource;
+
+	BenchmarkLanguage(final String scopeName, final String sampleResource) {
+		this.scopeName = scopeName;
+		this.sampleResource = sampleResource;
+	}
+
+	/**
+	 * @return a new registry that is able to resolve all bundled grammars and uses the bundled dark theme
+	 */
+	public static Registry createRegistry() {
+		final var registry = new Registry(new IRegistryOptions() {
+			@Override
+			public @Nullable IGrammarSource getGrammarSource(final String scopeName) {
+				final var resource = GRAMMARS.get(scopeName);
+				return resource == null ? null : IGrammarSource.fromResource(BenchmarkLanguage.class, resource);
+			}
+		});
+		registry.setTheme(IThemeSource.fromResource(BenchmarkLanguage.class, "themes/dark_vs.json"));
+		return registry;
+	}
+
+	/**
+	 * Loads the grammar of this language incl. all grammars it depends on.
+	 */
+	public IGrammar loadGrammar(final Registry registry) {
+		final var grammar = registry.loadGrammar(scopeName);
+		if (grammar == null)
+			throw new IllegalStateException("Grammar for scope [" + scopeName + "] not found");
+		return grammar;
+	}
+
+	/**
+	 * Creates a document with the given number of lines by repeating the lines of the sample document of this language.
+	 */
+	public String[] createDocument(final int lineCount) {
+		final var sampleLines = new ArrayList<String>();
+		try (var sampleIS = BenchmarkLanguage.class.getResourceAsStream(sampleResource)) {
+			if (sampleIS == null)
+				throw new IllegalStateException("Resource [" + sampleResource + "] not found");
+			new BufferedReader(new InputStreamReader(sampleIS, StandardCharsets.UTF_8)).lines().forEach(sampleLines::add);
+		} catch (final IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+
+		final var document = new String[lineCount];
+		for (int i = 0; i < lineCount; i++) {
+			document[i] = sampleLines.get(i % sampleLines.size());
+		}
+		return document;
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.grammar.IToken;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures tokenizing a whole document line by line via {@link org.eclipse.tm4e.core.grammar.IGrammar#tokenizeLine} and
+ * {@link org.eclipse.tm4e.core.grammar.IGrammar#tokenizeLine2} (with and without a reused {@link BinaryTokenBuffer}) and
+ * in bulk via {@link org.eclipse.tm4e.core.grammar.IGrammar#tokenizeDocument}.
+ */
+public class GrammarBenchmark extends AbstractDocumentBenchmark {
+
+	@Benchmark
+	public IStateStack tokenizeLine() {
+		IStateStack state = null;
+		for (final var line : document) {
+			state = grammar.tokenizeLine(line, state, null).getRuleStack();
+		}
+		return state;
+	}
+
+	@Benchmark
+	public IStateStack tokenizeLine2() {
+		IStateStack state = null;
+		for (final var line : document) {
+			state = grammar.tokenizeLine2(line, state, null).getRuleStack();
+		}
+		return state;
+	}
+
+	@Benchmark
+	public IStateStack tokenizeLine2WithBuffer() {
+		final var buffer = new BinaryTokenBuffer();
+		IStateStack state = null;
+		for (final var line : document) {
+			state = grammar.tokenizeLine2(line, state, null, buffer).getRuleStack();
+		}
+		return state;
+	}
+
+	@Benchmark
+	public List<ITokenizeLineResult<IToken[]>> tokenizeDocument() {
+		return grammar.tokenizeDocument(Arrays.asList(document));
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import org.eclipse.tm4e.core.internal.grammar.Grammar;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigScanner;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
+import org.eclipse.tm4e.core.internal.rule.RuleId;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures the regex search performed by {@link OnigScanner#findNextMatch} (backed by the OnigSearcher) using the
+ * patterns of the root rule of the grammar, scanning each line from start to end like the tokenizer does.
+ */
+public class OnigSearcherBenchmark extends AbstractDocumentBenchmark {
+
+	private OnigScanner scanner;
+	private OnigString[] onigLines;
+
+	@Override
+	protected void setup() {
+		// tokenizing one line ensures the root rule of the grammar is registered with the first rule id
+		grammar.tokenizeLine(document[0]);
+		final var grammarImpl = (Grammar) grammar;
+		scanner = grammarImpl.getRule(RuleId.of(1)).compileAG(grammarImpl, null, false, false).scanner;
+
+		onigLines = new OnigString[document.length];
+		for (int i = 0; i < document.length; i++) {
+			onigLines[i] = OnigString.of(document[i] + '\n');
+		}
+	}
+
+	@Benchmark
+	public int search() {
+		int matches = 0;
+		for (final var onigLine : onigLines) {
+			int pos = 0;
+			final int len = onigLine.content.length();
+			while (pos < len) {
+				final var match = scanner.findNextMatch(onigLine, pos);
+				if (match == null)
+					break;
+				matches++;
+				final int end = match.getCaptureIndices()[0].end;
+				pos = end > pos ? end : pos + 1;
+			}
+		}
+		return matches;
+	}
+}
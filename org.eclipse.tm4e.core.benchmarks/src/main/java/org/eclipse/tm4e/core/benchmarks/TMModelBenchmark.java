@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.core.model.TMModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the time the background tokenizer thread of a {@link TMModel} needs to revalidate the tokens of the whole
+ * document after all lines were marked as changed.
+ */
+public class TMModelBenchmark extends AbstractDocumentBenchmark {
+
+	private TMModel model;
+	private volatile CountDownLatch revalidationDone = new CountDownLatch(1);
+
+	@Override
+	protected void setup() throws Exception {
+		final String[] document = this.document;
+		model = new TMModel(document.length) {
+			@Override
+			public String getLineText(final int lineIndex) {
+				return document[lineIndex];
+			}
+		};
+		model.addModelTokensChangedListener(this::onModelTokensChanged);
+		model.setGrammar(grammar);
+		revalidationDone.await(); // wait for the initial tokenization to complete
+	}
+
+	private void onModelTokensChanged(final ModelTokensChangedEvent event) {
+		for (final var range : event.ranges) {
+			if (range.toLineNumber == document.length) {
+				revalidationDone.countDown();
+			}
+		}
+	}
+
+	@Benchmark
+	public void revalidateDocument() throws InterruptedException {
+		final var revalidationDone = this.revalidationDone = new CountDownLatch(1);
+		model.onLinesReplaced(0, document.length, document.length);
+		revalidationDone.await();
+	}
+
+	@TearDown
+	public void tearDown() {
+		model.dispose();
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
+import org.eclipse.tm4e.core.internal.theme.Theme;
+import org.eclipse.tm4e.core.internal.theme.raw.RawThemeReader;
+import org.eclipse.tm4e.core.registry.IThemeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures resolving the style of the scope paths found in a document via {@link Theme#match(ScopeStack)}. After the
+ * first invocation the styles are answered by the match cache of the theme.
+ */
+public class ThemeBenchmark extends AbstractDocumentBenchmark {
+
+	private Theme theme;
+	private ScopeStack[] scopePaths;
+
+	@Override
+	protected void setup() throws Exception {
+		theme = Theme.createFromRawTheme(
+				RawThemeReader.readTheme(IThemeSource.fromResource(BenchmarkLanguage.class, "themes/dark_vs.json")), null);
+
+		// collect the distinct scope paths of all tokens of the document
+		final var scopes = new LinkedHashSet<List<String>>();
+		IStateStack state = null;
+		for (final var line : document) {
+			final var result = grammar.tokenizeLine(line, state, null);
+			for (final var token : result.getTokens()) {
+				scopes.add(token.getScopes());
+			}
+			state = result.getRuleStack();
+		}
+		scopePaths = scopes.stream().map(ScopeStack::from).toArray(ScopeStack[]::new);
+	}
+
+	@Benchmark
+	public void match(final Blackhole blackhole) {
+		for (final var scopePath : scopePaths) {
+			blackhole.consume(theme.match(scopePath));
+		}
+	}
+}
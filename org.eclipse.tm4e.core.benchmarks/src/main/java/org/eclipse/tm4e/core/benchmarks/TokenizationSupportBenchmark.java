@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.model.TMTokenizationSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures tokenizing a whole document line by line via {@link TMTokenizationSupport#tokenize}, i.e. incl. the conversion
+ * of the scopes to the token types used by the editor.
+ */
+public class TokenizationSupportBenchmark extends AbstractDocumentBenchmark {
+
+	private TMTokenizationSupport tokenizationSupport;
+
+	@Override
+	protected void setup() {
+		tokenizationSupport = new TMTokenizationSupport(grammar);
+	}
+
+	@Benchmark
+	public IStateStack tokenize() {
+		IStateStack state = tokenizationSupport.getInitialState();
+		for (final var line : document) {
+			state = tokenizationSupport.tokenize(line, state).getEndState();
+		}
+		return state;
+	}
+}
@@ -192,4 +192,37 @@ void testMicrosoft_vscode_23460() throws Exception {
 		final var result = theme.match(path);
 		assertEquals(theme.getColorMap().get(result.foregroundId), "#FF410D");
 	}
+
+	@Test
+	@Order(6)
+	@DisplayName("Theme matching caches the result per scope path")
+	void testCachesResultPerScopePath() throws Exception {
+		final Theme theme = createTheme("""
+			{"settings": [
+				{ "settings": { "foreground": "#100000" } },
+				{ "scope": "string", "settings": { "foreground": "#200000" } },
+				{ "scope": "comment string", "settings": { "foreground": "#300000" } }
+			]}""");
+		final var colorMap = theme.getColorMap();
+
+		final var result = theme.match(ScopeStack.from("source", "string"));
+		assertEquals(colorMap.get(result.foregroundId), "#200000");
+		assertEquals(new Theme.MatchCacheStats(0, 1, 0, 1), theme.getMatchCacheStats());
+
+		// an equal scope path is answered by the cache
+		assertSame(result, theme.match(ScopeStack.from("source", "string")));
+		assertEquals(new Theme.MatchCacheStats(1, 1, 0, 1), theme.getMatchCacheStats());
+
+		// the same leaf scope with other parent scopes is resolved separately
+		assertEquals(colorMap.get(theme.match(ScopeStack.from("comment", "string")).foregroundId), "#300000");
+		assertEquals(new Theme.MatchCacheStats(1, 2, 0, 2), theme.getMatchCacheStats());
+
+		// the cache is cleared once it exceeds its maximum size
+		for (int i = 0; i < Theme.MAX_CACHED_MATCHES; i++) {
+			theme.match(ScopeStack.from("source", "string" + i));
+		}
+		final var stats = theme.getMatchCacheStats();
+		assertEquals(1, stats.evictions());
+		assertTrue(stats.size() <= Theme.MAX_CACHED_MATCHES);
+	}
 }
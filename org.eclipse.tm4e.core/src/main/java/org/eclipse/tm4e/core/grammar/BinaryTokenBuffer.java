@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.grammar;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable buffer of tokens in binary format as produced by
+ * {@link IGrammar#tokenizeLine2(String, IStateStack, java.time.Duration, BinaryTokenBuffer)}.
+ * <p>
+ * Each token occupies two int values: the start index of the token followed by its metadata. The buffer is cleared and
+ * refilled on each tokenization, thus a single instance can be reused for any number of lines to avoid allocations.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class BinaryTokenBuffer {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] data;
+	private int size;
+
+	public BinaryTokenBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity number of int values (not tokens) the buffer can hold before it needs to grow
+	 */
+	public BinaryTokenBuffer(final int initialCapacity) {
+		data = new int[Math.max(2, initialCapacity)];
+	}
+
+	/**
+	 * Adds a token to the end of the buffer.
+	 */
+	public void addToken(final int startIndex, final int metadata) {
+		if (size + 2 > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, size + 2));
+		}
+		data[size++] = startIndex;
+		data[size++] = metadata;
+	}
+
+	/**
+	 * Removes all tokens but keeps the allocated capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the int value at the given position, i.e. for token <code>i</code> the start index is at
+	 *         <code>2*i</code> and the metadata at <code>2*i + 1</code>
+	 */
+	public int get(final int index) {
+		return data[Objects.checkIndex(index, size)];
+	}
+
+	public int getMetadata(final int tokenIndex) {
+		return get(tokenIndex * 2 + 1);
+	}
+
+	public int getStartIndex(final int tokenIndex) {
+		return get(tokenIndex * 2);
+	}
+
+	public int getTokenCount() {
+		return size / 2;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the last token.
+	 *
+	 * @throws IndexOutOfBoundsException if the buffer is empty
+	 */
+	public void removeLastToken() {
+		Objects.checkIndex(1, size);
+		size -= 2;
+	}
+
+	public void setStartIndex(final int tokenIndex, final int startIndex) {
+		data[Objects.checkIndex(tokenIndex * 2, size)] = startIndex;
+	}
+
+	/**
+	 * @return the number of int values in the buffer, i.e. two times the number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a new array holding the tokens of this buffer in the format returned by {@link IGrammar#tokenizeLine2}
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
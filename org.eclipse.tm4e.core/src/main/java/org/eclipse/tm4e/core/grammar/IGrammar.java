@@ -18,11 +18,15 @@
 
 import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * TextMate grammar API.
+ * <p>
+ * Implementations are thread-safe, i.e. a single grammar instance can be shared by multiple documents that are
+ * tokenized concurrently.
  *
  * @see <a href="https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/main.ts#L200">
  *      github.com/microsoft/vscode-textmate/blob/main/src/main.ts</a>
@@ -122,4 +126,56 @@ public interface IGrammar {
 	 *            {@link ITokenizeLineResult#isStoppedEarly()} set to <code>true</code>
 	 */
 	ITokenizeLineResult<int[]> tokenizeLine2(String lineText, @Nullable IStateStack prevState, @Nullable Duration timeLimit);
+
+	/**
+	 * Tokenize `lineText` using previous line state `prevState` and write the tokens in binary format (as described at
+	 * {@link #tokenizeLine2(String, IStateStack, Duration)}) into the given buffer.
+	 * <p>
+	 * The buffer is cleared before it is filled. Reusing the same buffer for consecutive lines avoids allocating a new
+	 * token array per line.
+	 *
+	 * @param lineText the line text to tokenize.
+	 * @param prevState previous line state.
+	 * @param timeLimit duration after which tokenization is aborted, in which case the returned result will have
+	 *            {@link ITokenizeLineResult#isStoppedEarly()} set to <code>true</code>
+	 * @param tokens the buffer to write the tokens to, which is also returned by {@link ITokenizeLineResult#getTokens()}
+	 */
+	ITokenizeLineResult<BinaryTokenBuffer> tokenizeLine2(String lineText, @Nullable IStateStack prevState,
+			@Nullable Duration timeLimit, BinaryTokenBuffer tokens);
+
+	/**
+	 * Tokenizes all lines of a document.
+	 * <p>
+	 * Large documents are split into chunks which are tokenized in parallel using the common fork-join pool. The result
+	 * is the same as tokenizing the lines one after another via {@link #tokenizeLine(String, IStateStack, Duration)}.
+	 *
+	 * @param lines the lines of the document
+	 *
+	 * @return the tokenization results, one per line
+	 */
+	List<ITokenizeLineResult<IToken[]>> tokenizeDocument(List<String> lines);
+
+	/**
+	 * Tokenizes all lines of a document, with the tokens of each line in the binary format described at
+	 * {@link #tokenizeLine2(String)}.
+	 * <p>
+	 * Large documents are split into chunks which are tokenized in parallel using the common fork-join pool. The result
+	 * is the same as tokenizing the lines one after another via {@link #tokenizeLine2(String, IStateStack, Duration)}.
+	 *
+	 * @param lines the lines of the document
+	 *
+	 * @return the tokenization results, one per line
+	 */
+	List<ITokenizeLineResult<int[]>> tokenizeDocument2(List<String> lines);
+
+	/**
+	 * Compiles all rules of this grammar, including the rules of included grammars and injections, together with their
+	 * regular expressions. Otherwise they are compiled on first use during tokenization, which delays the tokenization
+	 * of the first lines of a document. Included grammars that are loaded on demand, see
+	 * {@link org.eclipse.tm4e.core.registry.IRegistryOptions#loadEmbeddedGrammarsOnDemand()}, are loaded by this method.
+	 * <p>
+	 * This method is thread-safe and intended to be called from a background thread, e.g. via
+	 * <code>CompletableFuture.runAsync(grammar::precompile)</code>, before the grammar is used.
+	 */
+	void precompile();
 }
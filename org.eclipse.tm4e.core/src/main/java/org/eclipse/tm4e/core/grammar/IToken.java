@@ -36,5 +36,8 @@ public interface IToken {
 	 */
 	int getEndIndex();
 
+	/**
+	 * @return unmodifiable list of the token's scope names, ordered from the root scope to the innermost scope
+	 */
 	List<String> getScopes();
 }
@@ -14,6 +14,7 @@
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -36,6 +37,11 @@ public final class AttributedScopeStack {
 	record Frame(int encodedTokenAttributes, List<String> scopeNames) {
 	}
 
+	/**
+	 * Maximum number of children a node keeps track of for re-use by {@link #push(ScopeStack, int)}.
+	 */
+	private static final int MAX_CACHED_CHILDREN = 16;
+
 	@Nullable
 	static AttributedScopeStack fromExtension(final @Nullable AttributedScopeStack namesScopeList,
 			final List<AttributedScopeStack.Frame> contentNameScopesList) {
@@ -44,7 +50,9 @@ static AttributedScopeStack fromExtension(final @Nullable AttributedScopeStack n
 		ScopeStack scopeNames = namesScopeList != null ? namesScopeList.scopePath : null;
 		for (final var frame : contentNameScopesList) {
 			scopeNames = ScopeStack.push(scopeNames, frame.scopeNames);
-			current = new AttributedScopeStack(current, castNonNull(scopeNames), frame.encodedTokenAttributes);
+			current = current == null
+					? new AttributedScopeStack(null, castNonNull(scopeNames), frame.encodedTokenAttributes)
+					: current.push(castNonNull(scopeNames), frame.encodedTokenAttributes);
 		}
 		return current;
 	}
@@ -75,6 +83,13 @@ public String scopeName() {
 	private final @Nullable AttributedScopeStack parent;
 	private final ScopeStack scopePath;
 	final int tokenAttributes;
+	private final int hashCode;
+
+	/**
+	 * Children created by {@link #push(ScopeStack, int)}. The array is replaced on modification, concurrent pushes may
+	 * thus lose an entry, which is harmless.
+	 */
+	private volatile AttributedScopeStack @Nullable [] children;
 
 	public AttributedScopeStack(
 			final @Nullable AttributedScopeStack parent,
@@ -83,6 +98,37 @@ public AttributedScopeStack(
 		this.parent = parent;
 		this.scopePath = scopePath;
 		this.tokenAttributes = tokenAttributes;
+		this.hashCode = 31 * (31 * (parent == null ? 0 : parent.hashCode) + scopePath.scopeName.hashCode())
+				+ tokenAttributes;
+	}
+
+	/**
+	 * Returns a child with the given scope path and token attributes. Identical pushes onto the same node usually
+	 * return the same instance, so that equal attributed scope stacks, and the states referencing them, can mostly be
+	 * compared by identity.
+	 *
+	 * @param scopePath the scope path of the child, i.e. {@link #scopePath} with the child's scope name pushed
+	 */
+	private AttributedScopeStack push(final ScopeStack scopePath, final int tokenAttributes) {
+		final var children = this.children;
+		if (children == null) {
+			final var child = new AttributedScopeStack(this, scopePath, tokenAttributes);
+			this.children = new AttributedScopeStack[] { child };
+			return child;
+		}
+
+		for (final var child : children) {
+			if (child.scopePath == scopePath && child.tokenAttributes == tokenAttributes)
+				return child;
+		}
+
+		final var child = new AttributedScopeStack(this, scopePath, tokenAttributes);
+		if (children.length < MAX_CACHED_CHILDREN) {
+			final var newChildren = Arrays.copyOf(children, children.length + 1);
+			newChildren[children.length] = child;
+			this.children = newChildren;
+		}
+		return child;
 	}
 
 	@Override
@@ -90,10 +136,20 @@ public String toString() {
 		return String.join(" ", this.getScopeNames());
 	}
 
+	@Override
+	public boolean equals(@Nullable final Object obj) {
+		return obj instanceof final AttributedScopeStack other && equals(this, other);
+	}
+
 	public boolean equals(final AttributedScopeStack other) {
 		return equals(this, other);
 	}
 
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
 	public static boolean equals(
 			@Nullable AttributedScopeStack a,
 			@Nullable AttributedScopeStack b) {
@@ -112,7 +168,8 @@ public static boolean equals(
 				return false;
 			}
 
-			if (a.tokenAttributes != b.tokenAttributes
+			if (a.hashCode != b.hashCode
+					|| a.tokenAttributes != b.tokenAttributes
 					|| !Objects.equals(a.scopeName(), b.scopeName())) {
 				return false;
 			}
@@ -177,7 +234,11 @@ private AttributedScopeStack _pushAttributed(
 				target.tokenAttributes,
 				rawMetadata,
 				scopeThemeMatchResult);
-		return new AttributedScopeStack(target, newPath, metadata);
+		return target.push(newPath, metadata);
+	}
+
+	ScopeStack getScopePath() {
+		return this.scopePath;
 	}
 
 	List<String> getScopeNames() {
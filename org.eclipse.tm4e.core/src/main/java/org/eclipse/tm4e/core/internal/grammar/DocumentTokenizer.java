@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
+
+/**
+ * Tokenizes whole documents by splitting them into chunks that are tokenized in parallel on the
+ * {@link ForkJoinPool#commonPool()}.
+ * <p>
+ * Except for the first chunk the start state of a chunk is not known upfront. Each chunk is therefore speculatively
+ * tokenized starting with the initial state of the grammar, which is correct for most documents since chunk boundaries
+ * usually are at top level. Afterwards the chunks are verified in order. If the end state of the previous chunk differs
+ * from the speculative start state of a chunk, the lines of the chunk are re-tokenized sequentially until a line yields
+ * the same end state as during speculative tokenization, from where on the speculative results are valid.
+ */
+final class DocumentTokenizer {
+
+	/**
+	 * Documents that would result in chunks with less lines are tokenized sequentially.
+	 */
+	private static final int MIN_LINES_PER_CHUNK = 256;
+
+	/**
+	 * Number of chunks per worker thread. More chunks than threads improve load balancing, since lines differ a lot in
+	 * their tokenization costs.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * @param tokenizeLine function that tokenizes the given line with the given previous state
+	 * @param initialStateSupplier supplies the state to speculatively start the tokenization of a chunk with
+	 */
+	static <T> List<ITokenizeLineResult<T>> tokenizeDocument(final List<String> lines,
+			final BiFunction<String, @Nullable StateStack, TokenizeLineResult<T>> tokenizeLine,
+			final Supplier<StateStack> initialStateSupplier) {
+		final int lineCount = lines.size();
+
+		@SuppressWarnings("unchecked")
+		final var results = (TokenizeLineResult<T>[]) new TokenizeLineResult<?>[lineCount];
+
+		final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		final int chunkCount = parallelism < 2 // without parallelism speculative tokenization only adds overhead
+				? 1
+				: Math.min(parallelism * CHUNKS_PER_THREAD, lineCount / MIN_LINES_PER_CHUNK);
+		if (chunkCount < 2) {
+			tokenizeLines(lines, 0, lineCount, null, tokenizeLine, results);
+			return Arrays.asList(results);
+		}
+
+		final var chunkStarts = new int[chunkCount + 1];
+		for (int chunk = 0; chunk <= chunkCount; chunk++) {
+			chunkStarts[chunk] = (int) ((long) chunk * lineCount / chunkCount);
+		}
+
+		final var chunkStartStates = new @Nullable StateStack[chunkCount];
+		IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+			final var startState = chunk == 0 ? null : initialStateSupplier.get();
+			chunkStartStates[chunk] = startState;
+			tokenizeLines(lines, chunkStarts[chunk], chunkStarts[chunk + 1], startState, tokenizeLine, results);
+		});
+
+		// verify the speculative start states and fix up the chunks where they were wrong
+		for (int chunk = 1; chunk < chunkCount; chunk++) {
+			final int chunkStart = chunkStarts[chunk];
+			var prevState = results[chunkStart - 1].getRuleStack();
+			if (prevState.equals(chunkStartStates[chunk]))
+				continue;
+
+			for (int i = chunkStart, chunkEnd = chunkStarts[chunk + 1]; i < chunkEnd; i++) {
+				final var speculativeEndState = results[i].getRuleStack();
+				final var result = results[i] = tokenizeLine.apply(lines.get(i), prevState);
+				prevState = result.getRuleStack();
+				if (prevState.equals(speculativeEndState))
+					break; // all following speculative results of the chunk are valid
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	private static <T> void tokenizeLines(final List<String> lines, final int start, final int end,
+			@Nullable StateStack prevState,
+			final BiFunction<String, @Nullable StateStack, TokenizeLineResult<T>> tokenizeLine,
+			final TokenizeLineResult<T>[] results) {
+		for (int i = start; i < end; i++) {
+			final var result = results[i] = tokenizeLine.apply(lines.get(i), prevState);
+			prevState = result.getRuleStack();
+		}
+	}
+
+	private DocumentTokenizer() {
+	}
+}
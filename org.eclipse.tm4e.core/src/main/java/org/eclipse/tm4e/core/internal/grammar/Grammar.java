@@ -21,25 +21,31 @@
 import java.lang.System.Logger.Level;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.grammar.IStateStack;
 import org.eclipse.tm4e.core.grammar.IToken;
 import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
+import org.eclipse.tm4e.core.internal.grammar.LineTokenizer.TokenizeStringResult;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawGrammar;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawRepository;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawRule;
-import org.eclipse.tm4e.core.internal.grammar.raw.RawRule;
+import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarOverlay;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
 import org.eclipse.tm4e.core.internal.matcher.Matcher;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExpProfiler;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
 import org.eclipse.tm4e.core.internal.registry.IGrammarRepository;
 import org.eclipse.tm4e.core.internal.registry.IThemeProvider;
@@ -47,11 +53,15 @@
 import org.eclipse.tm4e.core.internal.rule.Rule;
 import org.eclipse.tm4e.core.internal.rule.RuleFactory;
 import org.eclipse.tm4e.core.internal.rule.RuleId;
-import org.eclipse.tm4e.core.internal.utils.ObjectCloner;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
 
 /**
  * TextMate grammar implementation.
+ * <p>
+ * All rules of a grammar are compiled once on first use. After that the rule table is only extended by the rules of
+ * external grammars loaded on demand, see {@link IGrammarRepository#isLoadingOnDemand()}, which happens while holding
+ * the lock of the grammar. The lazily populated caches of the compiled rules are safe for concurrent use. Thus a single
+ * grammar instance can be used to tokenize multiple documents from different threads at the same time.
  *
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/grammar/grammar.ts#L98">
@@ -63,17 +73,29 @@ public final class Grammar implements IGrammar, IRuleFactoryHelper {
 
 	private final String rootScopeName;
 
+	/**
+	 * Set after all rules are registered. From then on {@link #_ruleId2desc}, {@link #_rawRuleIds} and
+	 * {@link #includedGrammars} are only modified while compiling the rules of external grammars loaded on demand.
+	 */
 	@Nullable
-	private RuleId _rootId;
-	private int _lastRuleId = 0;
-	private final Map<RuleId, @Nullable Rule> _ruleId2desc = new HashMap<>();
+	private volatile RuleId _rootId;
+	private volatile int _lastRuleId = 0;
+
+	/**
+	 * The rules indexed by their id. Index 0 is never used, see {@link RuleId#NO_RULE}. The id of a rule is reserved
+	 * before the rule is built, so an entry up to {@link #_lastRuleId} may still be <code>null</code> and the array
+	 * may not yet hold it. Readers not holding the lock of this grammar must therefore bound their loops by the length
+	 * of the array instead of {@link #_lastRuleId}.
+	 */
+	private volatile @Nullable Rule[] _ruleId2desc = new @Nullable Rule[64];
+	private final Map<IRawRule, RuleId> _rawRuleIds = new IdentityHashMap<>();
 	private final Map<String /*scopeName*/, IRawGrammar> includedGrammars = new HashMap<>();
 	private final IGrammarRepository _grammarRepository;
 	private final IRawGrammar _grammar;
 	final IThemeProvider themeProvider;
 
 	@Nullable
-	private List<Injection> _injections;
+	private volatile List<Injection> _injections;
 	private final BasicScopeAttributesProvider _basicScopeAttributesProvider;
 	private final List<TokenTypeMatcher> _tokenTypeMatchers = new ArrayList<>();
 
@@ -165,7 +187,7 @@ private List<Injection> _collectInjections() {
 			final var injectionScopeNames = this._grammarRepository.injections(scopeName);
 			if (injectionScopeNames != null) {
 				injectionScopeNames.forEach(injectionScopeName -> {
-					final var injectionGrammar = Grammar.this.getExternalGrammar(injectionScopeName, null);
+					final var injectionGrammar = Grammar.this.loadExternalGrammar(injectionScopeName, null);
 					if (injectionGrammar != null) {
 						final var selector = injectionGrammar.getInjectionSelector();
 						if (selector != null) {
@@ -187,6 +209,11 @@ private List<Injection> _collectInjections() {
 	}
 
 	List<Injection> getInjections() {
+		final var injections = this._injections;
+		return injections == null ? initInjections() : injections;
+	}
+
+	private synchronized List<Injection> initInjections() {
 		var injections = this._injections;
 		if (injections == null) {
 			injections = this._injections = this._collectInjections();
@@ -203,22 +230,77 @@ List<Injection> getInjections() {
 
 	@Override
 	public <T extends Rule> T registerRule(final Function<RuleId, T> factory) {
+		if (this._rootId != null && !Thread.holdsLock(this))
+			throw new IllegalStateException("Grammar " + rootScopeName + " is already compiled");
+
 		final var id = RuleId.of(++this._lastRuleId);
 		final @Nullable T result = factory.apply(id);
-		this._ruleId2desc.put(id, result);
+		if (id.id >= this._ruleId2desc.length) {
+			// the factory may have registered nested rules, whose ids exceed the id of the rule it built
+			final var rules = this._ruleId2desc;
+			this._ruleId2desc = Arrays.copyOf(rules, Math.max(rules.length * 2, this._lastRuleId + 1));
+		}
+		this._ruleId2desc[id.id] = result;
 		return result;
 	}
 
 	@Override
-	public Rule getRule(final RuleId ruleId) {
-		final var rule = this._ruleId2desc.get(ruleId);
+	public @Nullable RuleId getRuleId(final IRawRule rawRule) {
+		return this._rawRuleIds.get(rawRule);
+	}
+
+	@Override
+	public void setRuleId(final IRawRule rawRule, final RuleId ruleId) {
+		this._rawRuleIds.put(rawRule, ruleId);
+	}
+
+	@Override
+	public @Nullable Rule findRule(final RuleId ruleId) {
+		final var rules = this._ruleId2desc;
+		return ruleId.id > 0 && ruleId.id < rules.length ? rules[ruleId.id] : null;
+	}
+
+	@Override
+	public Rule getRule(final int ruleId) {
+		final var rules = this._ruleId2desc;
+		final Rule rule = ruleId > 0 && ruleId < rules.length ? rules[ruleId] : null;
 		if (rule == null) {
 			throw new IndexOutOfBoundsException(
-					"No rule with index " + ruleId.id + " found. Possible values: 0.." + this._ruleId2desc.size());
+					"No rule with index " + ruleId + " found. Possible values: 1.." + this._lastRuleId);
 		}
 		return rule;
 	}
 
+	@Override
+	public void precompile() {
+		if (this._rootId == null) {
+			compileRules();
+		}
+		// precompiling a rule including an external grammar loaded on demand loads it and registers its rules, which
+		// may replace the array, so it is read again for each rule
+		for (int id = 1; id < this._ruleId2desc.length; id++) {
+			final var rule = this._ruleId2desc[id];
+			if (rule != null) {
+				rule.precompile(this);
+			}
+		}
+	}
+
+	/**
+	 * @return the statistics recorded by the {@link OnigRegExpProfiler} for the patterns of the rules of this grammar
+	 */
+	public RegExpProfileReport getRegExpProfileReport() {
+		final var ruleId2desc = this._ruleId2desc;
+		final var rules = new LinkedHashMap<RuleId, Rule>();
+		for (int id = 1; id < ruleId2desc.length; id++) {
+			final var rule = ruleId2desc[id];
+			if (rule != null) {
+				rules.put(RuleId.of(id), rule);
+			}
+		}
+		return new RegExpProfileReport(rules);
+	}
+
 	@Override
 	@Nullable
 	public IRawGrammar getExternalGrammar(final String scopeName, @Nullable final IRawRepository repository) {
@@ -236,15 +318,39 @@ public IRawGrammar getExternalGrammar(final String scopeName, @Nullable final IR
 		return null;
 	}
 
-	private IRawGrammar initGrammar(IRawGrammar grammar, @Nullable final IRawRule base) {
-		grammar = ObjectCloner.deepClone(grammar);
+	@Override
+	@Nullable
+	public IRawGrammar loadExternalGrammar(final String scopeName, @Nullable final IRawRepository repository) {
+		if (!this.includedGrammars.containsKey(scopeName)) {
+			this._grammarRepository.load(scopeName);
+		}
+		return getExternalGrammar(scopeName, repository);
+	}
+
+	@Override
+	public boolean isLoadingOnDemand() {
+		return this._grammarRepository.isLoadingOnDemand();
+	}
+
+	private IRawGrammar initGrammar(final IRawGrammar grammar, @Nullable final IRawRule base) {
+		return new RawGrammarOverlay(grammar, base);
+	}
 
-		final var repo = grammar.getRepository();
-		repo.setSelf(new RawRule()
-				.setName(grammar.getScopeName())
-				.setPatterns(grammar.getPatterns()));
-		repo.setBase(base != null ? base : repo.getSelf());
-		return grammar;
+	/**
+	 * Registers all rules reachable from the root rule and the injections. Rules are not registered afterwards.
+	 */
+	private synchronized RuleId compileRules() {
+		var rootId = this._rootId;
+		if (rootId == null) {
+			rootId = RuleFactory.getCompiledRuleId(
+					this._grammar.getRepository().getSelf(),
+					this,
+					this._grammar.getRepository());
+			// This ensures ids are deterministic, and thus equal in renderer and webworker.
+			this.getInjections();
+			this._rootId = rootId;
+		}
+		return rootId;
 	}
 
 	@Override
@@ -256,7 +362,7 @@ public ITokenizeLineResult<IToken[]> tokenizeLine(final String lineText) {
 	public ITokenizeLineResult<IToken[]> tokenizeLine(final String lineText,
 			@Nullable final IStateStack prevState,
 			@Nullable final Duration timeLimit) {
-		return _tokenize(lineText, (StateStack) prevState, false, timeLimit);
+		return _tokenize(lineText, (StateStack) prevState, false, null, timeLimit);
 	}
 
 	@Override
@@ -267,7 +373,13 @@ public ITokenizeLineResult<int[]> tokenizeLine2(final String lineText) {
 	@Override
 	public ITokenizeLineResult<int[]> tokenizeLine2(final String lineText, @Nullable final IStateStack prevState,
 			@Nullable final Duration timeLimit) {
-		return _tokenize(lineText, (StateStack) prevState, true, timeLimit);
+		return _tokenize(lineText, (StateStack) prevState, true, null, timeLimit);
+	}
+
+	@Override
+	public ITokenizeLineResult<BinaryTokenBuffer> tokenizeLine2(final String lineText, @Nullable final IStateStack prevState,
+			@Nullable final Duration timeLimit, final BinaryTokenBuffer tokens) {
+		return _tokenize(lineText, (StateStack) prevState, true, tokens, timeLimit);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -275,54 +387,17 @@ private <T> T _tokenize(
 			String lineText,
 			@Nullable StateStack prevState,
 			final boolean emitBinaryTokens,
+			@Nullable final BinaryTokenBuffer binaryTokens,
 			@Nullable final Duration timeLimit) {
 		var rootId = this._rootId;
 		if (rootId == null) {
-			rootId = this._rootId = RuleFactory.getCompiledRuleId(
-					this._grammar.getRepository().getSelf(),
-					this,
-					this._grammar.getRepository());
-			// This ensures ids are deterministic, and thus equal in renderer and webworker.
-			this.getInjections();
+			rootId = compileRules();
 		}
 
 		final boolean isFirstLine;
 		if (prevState == null || prevState == StateStack.NULL) {
 			isFirstLine = true;
-			final var rawDefaultMetadata = this._basicScopeAttributesProvider.getDefaultAttributes();
-			final var defaultStyle = this.themeProvider.getDefaults();
-			final int defaultMetadata = EncodedTokenAttributes.set(
-					0,
-					rawDefaultMetadata.languageId,
-					rawDefaultMetadata.tokenType,
-					null,
-					defaultStyle.fontStyle,
-					defaultStyle.foregroundId,
-					defaultStyle.backgroundId);
-
-			final var rootScopeName = this.getRule(rootId).getName(null, null);
-
-			final AttributedScopeStack scopeList;
-			if (rootScopeName != null) {
-				scopeList = AttributedScopeStack.createRootAndLookUpScopeName(
-						rootScopeName,
-						defaultMetadata,
-						this);
-			} else {
-				scopeList = AttributedScopeStack.createRoot(
-						"unknown",
-						defaultMetadata);
-			}
-
-			prevState = new StateStack(
-					null,
-					rootId,
-					-1,
-					-1,
-					false,
-					null,
-					scopeList,
-					scopeList);
+			prevState = createInitialState(rootId);
 		} else {
 			isFirstLine = false;
 			prevState.reset();
@@ -332,31 +407,97 @@ private <T> T _tokenize(
 			// Only add \n if the passed lineText didn't have it.
 			lineText += '\n';
 		}
-		final var onigLineText = OnigString.of(lineText);
+		final var onigLineText = OnigString.ofReusableBuffer(lineText);
 		final int lineLength = lineText.length();
 		final var lineTokens = new LineTokens(
 				emitBinaryTokens,
 				lineText,
 				_tokenTypeMatchers,
-				balancedBracketSelectors);
-		final var r = LineTokenizer.tokenizeString(
-				this,
-				onigLineText,
-				isFirstLine,
-				0,
-				prevState,
-				lineTokens,
-				true,
-				timeLimit == null ? Duration.ZERO : timeLimit);
+				balancedBracketSelectors,
+				binaryTokens);
+		final TokenizeStringResult r;
+		try {
+			r = LineTokenizer.tokenizeString(
+					this,
+					onigLineText,
+					isFirstLine,
+					0,
+					prevState,
+					lineTokens,
+					true,
+					timeLimit == null ? Duration.ZERO : timeLimit);
+		} finally {
+			onigLineText.release();
+		}
 
 		return (T) new TokenizeLineResult<>(
 				emitBinaryTokens
-						? lineTokens.getBinaryResult(r.stack, lineLength)
+						? binaryTokens == null
+								? lineTokens.getBinaryResult(r.stack, lineLength).toArray()
+								: lineTokens.getBinaryResult(r.stack, lineLength)
 						: lineTokens.getResult(r.stack, lineLength),
 				r.stack,
 				r.stoppedEarly);
 	}
 
+	private StateStack createInitialState(final RuleId rootId) {
+		final var rawDefaultMetadata = this._basicScopeAttributesProvider.getDefaultAttributes();
+		final var defaultStyle = this.themeProvider.getDefaults();
+		final int defaultMetadata = EncodedTokenAttributes.set(
+				0,
+				rawDefaultMetadata.languageId,
+				rawDefaultMetadata.tokenType,
+				null,
+				defaultStyle.fontStyle,
+				defaultStyle.foregroundId,
+				defaultStyle.backgroundId);
+
+		final var rootScopeName = this.getRule(rootId).getName(null, null);
+
+		final AttributedScopeStack scopeList;
+		if (rootScopeName != null) {
+			scopeList = AttributedScopeStack.createRootAndLookUpScopeName(
+					rootScopeName,
+					defaultMetadata,
+					this);
+		} else {
+			scopeList = AttributedScopeStack.createRoot(
+					"unknown",
+					defaultMetadata);
+		}
+
+		return new StateStack(
+				null,
+				rootId.id,
+				-1,
+				-1,
+				false,
+				null,
+				scopeList,
+				scopeList);
+	}
+
+	@Override
+	public List<ITokenizeLineResult<IToken[]>> tokenizeDocument(final List<String> lines) {
+		return _tokenizeDocument(lines, false);
+	}
+
+	@Override
+	public List<ITokenizeLineResult<int[]>> tokenizeDocument2(final List<String> lines) {
+		return _tokenizeDocument(lines, true);
+	}
+
+	private <T> List<ITokenizeLineResult<T>> _tokenizeDocument(final List<String> lines, final boolean emitBinaryTokens) {
+		var rootId = this._rootId;
+		if (rootId == null) {
+			rootId = compileRules();
+		}
+		final var rootId0 = rootId;
+		return DocumentTokenizer.tokenizeDocument(lines,
+				(lineText, prevState) -> _tokenize(lineText, prevState, emitBinaryTokens, null, null),
+				() -> createInitialState(rootId0));
+	}
+
 	@Override
 	@Nullable
 	public String getName() {
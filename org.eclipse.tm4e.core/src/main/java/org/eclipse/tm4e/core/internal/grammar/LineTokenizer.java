@@ -32,6 +32,7 @@
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigCaptureIndex;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigScannerMatch;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigSearchTimeoutException;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
 import org.eclipse.tm4e.core.internal.rule.BeginEndRule;
 import org.eclipse.tm4e.core.internal.rule.BeginWhileRule;
@@ -55,9 +56,9 @@ private record LocalStackElement(AttributedScopeStack scopes, int endPos) {
 
 	private static class MatchResult {
 		final OnigCaptureIndex[] captureIndices;
-		final RuleId matchedRuleId;
+		final int matchedRuleId;
 
-		MatchResult(final RuleId matchedRuleId, final OnigCaptureIndex[] captureIndices) {
+		MatchResult(final int matchedRuleId, final OnigCaptureIndex[] captureIndices) {
 			this.matchedRuleId = matchedRuleId;
 			this.captureIndices = captureIndices;
 		}
@@ -66,7 +67,7 @@ private static class MatchResult {
 	private static final class MatchInjectionsResult extends MatchResult {
 		boolean isPriorityMatch;
 
-		MatchInjectionsResult(final RuleId matchedRuleId, final OnigCaptureIndex[] captureIndices, final boolean isPriorityMatch) {
+		MatchInjectionsResult(final int matchedRuleId, final OnigCaptureIndex[] captureIndices, final boolean isPriorityMatch) {
 			super(matchedRuleId, captureIndices);
 			this.isPriorityMatch = isPriorityMatch;
 		}
@@ -112,46 +113,79 @@ private LineTokenizer(final Grammar grammar, final OnigString lineText, final bo
 	private TokenizeStringResult scan(final boolean checkWhileConditions, final long timeLimit) {
 		stop = false;
 
-		if (checkWhileConditions) {
-			final var whileCheckResult = checkWhileConditions(grammar, lineText, isFirstLine, linePos, stack, lineTokens);
-			stack = whileCheckResult.stack;
-			linePos = whileCheckResult.linePos;
-			isFirstLine = whileCheckResult.isFirstLine;
-			anchorPosition = whileCheckResult.anchorPosition;
+		if (timeLimit > 0) {
+			// interrupts regex searches that would otherwise exceed the time limit on their own
+			lineText.startTimeLimit(timeLimit);
 		}
 
-		final var startTime = System.currentTimeMillis();
-		while (!stop) {
-			if (timeLimit > 0) {
-				final var elapsedTime = System.currentTimeMillis() - startTime;
-				if (elapsedTime > timeLimit) {
-					return new TokenizeStringResult(stack, true);
+		// the state before the current match, which a match may have partially applied when the time limit expires
+		var prevStack = stack;
+		var prevLinePos = linePos;
+		var prevAnchorPosition = anchorPosition;
+		var prevIsFirstLine = isFirstLine;
+		try {
+			if (checkWhileConditions) {
+				final var whileCheckResult = checkWhileConditions(grammar, lineText, isFirstLine, linePos, stack, lineTokens);
+				stack = whileCheckResult.stack;
+				linePos = whileCheckResult.linePos;
+				isFirstLine = whileCheckResult.isFirstLine;
+				anchorPosition = whileCheckResult.anchorPosition;
+			}
+
+			final var startTime = System.currentTimeMillis();
+			while (!stop) {
+				if (timeLimit > 0) {
+					final var elapsedTime = System.currentTimeMillis() - startTime;
+					if (elapsedTime > timeLimit) {
+						return new TokenizeStringResult(stack, true);
+					}
 				}
+				prevStack = stack;
+				prevLinePos = linePos;
+				prevAnchorPosition = anchorPosition;
+				prevIsFirstLine = isFirstLine;
+				scanNext(); // potentially modifies linePos && anchorPosition
+			}
+		} catch (final OnigSearchTimeoutException ex) {
+			if (timeLimit <= 0) {
+				// the time limit of the line containing the retokenized capture expired, let the scan of that line stop
+				throw ex;
+			}
+			// the search may have been interrupted while retokenizing the captures of a match whose rule was already
+			// pushed, so the state from before that match is restored
+			stack = prevStack;
+			linePos = prevLinePos;
+			anchorPosition = prevAnchorPosition;
+			isFirstLine = prevIsFirstLine;
+			return new TokenizeStringResult(stack, true);
+		} finally {
+			if (timeLimit > 0) {
+				lineText.cancelTimeLimit();
 			}
-			scanNext(); // potentially modifies linePos && anchorPosition
 		}
 
 		return new TokenizeStringResult(stack, false);
 	}
 
 	private void scanNext() {
-		LOGGER.log(TRACE, () -> "@@scanNext: |" + lineText.content.replace("\n", "\\n").substring(linePos) + '|');
+		LOGGER.log(TRACE, () -> "@@scanNext: |"
+				+ lineText.content.substring(0, lineText.charsCount).replace("\n", "\\n").substring(linePos) + '|');
 
 		final MatchResult r = matchRuleOrInjections(grammar, lineText, isFirstLine, linePos, stack, anchorPosition);
 
 		if (r == null) {
 			LOGGER.log(TRACE, " no more matches.");
 			// No match
-			lineTokens.produce(stack, lineText.content.length());
+			lineTokens.produce(stack, lineText.charsCount);
 			stop = true;
 			return;
 		}
 
 		final OnigCaptureIndex[] captureIndices = r.captureIndices;
-		final RuleId matchedRuleId = r.matchedRuleId;
+		final int matchedRuleId = r.matchedRuleId;
 		final boolean hasAdvanced = captureIndices.length > 0 && captureIndices[0].end > linePos;
 
-		if (matchedRuleId.equals(RuleId.END_RULE)) {
+		if (matchedRuleId == RuleId.END_RULE_ID) {
 			// We matched the `end` for this rule => pop it
 			final BeginEndRule poppedRule = (BeginEndRule) stack.getRule(grammar);
 
@@ -178,7 +212,7 @@ private void scanNext() {
 				// intent was to continue in this state
 				stack = popped;
 
-				lineTokens.produce(stack, lineText.content.length());
+				lineTokens.produce(stack, lineText.charsCount);
 				stop = true;
 				return;
 			}
@@ -196,7 +230,7 @@ private void scanNext() {
 					matchedRuleId,
 					linePos,
 					anchorPosition,
-					captureIndices[0].end == lineText.content.length(),
+					captureIndices[0].end == lineText.charsCount,
 					null,
 					nameScopesList,
 					nameScopesList);
@@ -232,7 +266,7 @@ private void scanNext() {
 					// Grammar pushed the same rule without advancing
 					LOGGER.log(INFO, "[2] - Grammar is in an endless loop - Grammar pushed the same rule without advancing");
 					stack = castNonNull(stack.pop());
-					lineTokens.produce(stack, lineText.content.length());
+					lineTokens.produce(stack, lineText.charsCount);
 					stop = true;
 					return;
 				}
@@ -266,7 +300,7 @@ private void scanNext() {
 					// Grammar pushed the same rule without advancing
 					LOGGER.log(INFO, "[3] - Grammar is in an endless loop - Grammar pushed the same rule without advancing");
 					stack = castNonNull(stack.pop());
-					lineTokens.produce(stack, lineText.content.length());
+					lineTokens.produce(stack, lineText.charsCount);
 					stop = true;
 					return;
 				}
@@ -294,7 +328,7 @@ private void scanNext() {
 					// Grammar is not advancing, nor is it pushing/popping
 					LOGGER.log(INFO, "[4] - Grammar is in an endless loop - Grammar is not advancing, nor is it pushing/popping");
 					stack = stack.safePop();
-					lineTokens.produce(stack, lineText.content.length());
+					lineTokens.produce(stack, lineText.charsCount);
 					stop = true;
 					return;
 				}
@@ -365,7 +399,7 @@ private MatchInjectionsResult matchInjections(final List<Injection> injections,
 		// The lower the better
 		var bestMatchRating = Integer.MAX_VALUE;
 		OnigCaptureIndex[] bestMatchCaptureIndices = null;
-		var bestMatchRuleId = RuleId.END_RULE;
+		int bestMatchRuleId = RuleId.END_RULE_ID;
 		var bestMatchResultPriority = 0;
 
 		final List<String> scopes = stack.contentNameScopesList != null ? stack.contentNameScopesList.getScopeNames()
@@ -462,7 +496,7 @@ private void handleCaptures(final Grammar grammar, final OnigString lineText, fi
 			}
 
 			final var retokenizeCapturedWithRuleId = captureRule.retokenizeCapturedWithRuleId;
-			if (retokenizeCapturedWithRuleId.notEquals(RuleId.NO_RULE)) {
+			if (retokenizeCapturedWithRuleId.id != RuleId.NO_RULE_ID) {
 				// the capture requires additional matching
 				final var scopeName = captureRule.getName(lineTextContent, captureIndices);
 				final var nameScopesList = castNonNull(stack.contentNameScopesList).pushAttributed(scopeName, grammar);
@@ -470,11 +504,11 @@ private void handleCaptures(final Grammar grammar, final OnigString lineText, fi
 				final var contentNameScopesList = nameScopesList.pushAttributed(contentName, grammar);
 
 				// the capture requires additional matching
-				final var stackClone = stack.push(retokenizeCapturedWithRuleId, captureIndex.start, -1, false, null, nameScopesList,
+				final var stackClone = stack.push(retokenizeCapturedWithRuleId.id, captureIndex.start, -1, false, null, nameScopesList,
 						contentNameScopesList);
-				final var onigSubStr = OnigString.of(lineTextContent.substring(0, captureIndex.end));
+				final var onigSubStr = lineText.prefix(captureIndex.end);
 				tokenizeString(grammar, onigSubStr, isFirstLine && captureIndex.start == 0, captureIndex.start, stackClone, lineTokens,
-						false, Duration.ZERO /* no time limit */);
+						false, Duration.ZERO /* the prefix shares the time limit of the line */);
 				continue;
 			}
 
@@ -532,8 +566,8 @@ final class WhileStack {
 			}
 
 			if (r != null) {
-				final RuleId matchedRuleId = ruleScanner.rules[r.index];
-				if (RuleId.WHILE_RULE.notEquals(matchedRuleId)) {
+				final int matchedRuleId = ruleScanner.rules[r.index];
+				if (matchedRuleId != RuleId.WHILE_RULE_ID) {
 					// we shouldn't end up here
 					stack = castNonNull(whileRule.stack.pop());
 					break;
@@ -17,16 +17,15 @@
 package org.eclipse.tm4e.core.internal.grammar;
 
 import static java.lang.System.Logger.Level.TRACE;
-import static org.eclipse.tm4e.core.internal.utils.MoreCollections.*;
 
 import java.lang.System.Logger;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
 import org.eclipse.tm4e.core.grammar.IToken;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.OptionalStandardTokenType;
@@ -42,12 +41,17 @@ final class LineTokens {
 	private static final class Token implements IToken {
 		private int startIndex;
 		private final int endIndex;
-		private final List<String> scopes;
 
-		Token(final int startIndex, final int endIndex, final List<String> scopes) {
+		/**
+		 * the scope names are only materialized on demand via {@link ScopeStack#getSegments()}
+		 */
+		@Nullable
+		private final ScopeStack scopePath;
+
+		Token(final int startIndex, final int endIndex, @Nullable final ScopeStack scopePath) {
 			this.startIndex = startIndex;
 			this.endIndex = endIndex;
-			this.scopes = scopes;
+			this.scopePath = scopePath;
 		}
 
 		@Override
@@ -67,7 +71,8 @@ public int getEndIndex() {
 
 		@Override
 		public List<String> getScopes() {
-			return scopes;
+			final var scopePath = this.scopePath;
+			return scopePath == null ? Collections.emptyList() : scopePath.getSegments();
 		}
 
 		@Override
@@ -75,7 +80,7 @@ public String toString() {
 			return "{"
 					+ "startIndex: " + startIndex
 					+ ", endIndex: " + endIndex
-					+ ", scopes: " + scopes
+					+ ", scopes: " + getScopes()
 					+ "}";
 		}
 	}
@@ -83,6 +88,7 @@ public String toString() {
 	private static final Logger LOGGER = System.getLogger(LineTokens.class.getName());
 
 	private static final Deque<IToken> EMPTY_DEQUE = new ArrayDeque<>(0);
+	private static final BinaryTokenBuffer EMPTY_BINARY_TOKENS = new BinaryTokenBuffer(0);
 
 	private final boolean _emitBinaryTokens;
 
@@ -99,7 +105,7 @@ public String toString() {
 	/**
 	 * used only if `emitBinaryTokens` is true.
 	 */
-	private final List<Integer> _binaryTokens;
+	private final BinaryTokenBuffer _binaryTokens;
 
 	private int _lastTokenEndIndex = 0;
 
@@ -108,20 +114,29 @@ public String toString() {
 	@Nullable
 	private final BalancedBracketSelectors balancedBracketSelectors;
 
+	/**
+	 * @param binaryTokens optional buffer to reuse for binary tokens, it is cleared before use
+	 */
 	LineTokens(final boolean emitBinaryTokens,
 			final String lineText,
 			final List<TokenTypeMatcher> tokenTypeOverrides,
-			@Nullable final BalancedBracketSelectors balancedBracketSelectors) {
+			@Nullable final BalancedBracketSelectors balancedBracketSelectors,
+			@Nullable final BinaryTokenBuffer binaryTokens) {
 
 		this._emitBinaryTokens = emitBinaryTokens;
 		this._tokenTypeOverrides = tokenTypeOverrides;
 		this._lineText = LOGGER.isLoggable(TRACE) ? lineText : ""; // store line only if it's logged
 		if (this._emitBinaryTokens) {
 			this._tokens = EMPTY_DEQUE;
-			this._binaryTokens = new ArrayList<>();
+			if (binaryTokens == null) {
+				this._binaryTokens = new BinaryTokenBuffer();
+			} else {
+				binaryTokens.clear();
+				this._binaryTokens = binaryTokens;
+			}
 		} else {
 			this._tokens = new ArrayDeque<>();
-			this._binaryTokens = Collections.emptyList();
+			this._binaryTokens = EMPTY_BINARY_TOKENS;
 		}
 		this.balancedBracketSelectors = balancedBracketSelectors;
 	}
@@ -176,7 +191,8 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 						0);
 			}
 
-			if (!this._binaryTokens.isEmpty() && getLastElement(this._binaryTokens) == metadata) {
+			final var binaryTokens = this._binaryTokens;
+			if (!binaryTokens.isEmpty() && binaryTokens.getMetadata(binaryTokens.getTokenCount() - 1) == metadata) {
 				// no need to push a token with the same metadata
 				this._lastTokenEndIndex = endIndex;
 				return;
@@ -193,16 +209,14 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 				}
 			}
 
-			this._binaryTokens.add(this._lastTokenEndIndex);
-			this._binaryTokens.add(metadata);
+			binaryTokens.addToken(this._lastTokenEndIndex, metadata);
 
 			this._lastTokenEndIndex = endIndex;
 			return;
 		}
 
-		final List<String> scopes = scopesList != null ? scopesList.getScopeNames() : Collections.emptyList();
-
 		if (LOGGER.isLoggable(TRACE)) {
+			final List<String> scopes = scopesList != null ? scopesList.getScopeNames() : Collections.emptyList();
 			LOGGER.log(TRACE, "  token: |" + this._lineText
 					.substring(this._lastTokenEndIndex >= 0 ? this._lastTokenEndIndex : 0, endIndex)
 					.replace("\n", "\\n")
@@ -212,7 +226,7 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 			}
 		}
 
-		this._tokens.add(new Token(_lastTokenEndIndex, endIndex, scopes));
+		this._tokens.add(new Token(_lastTokenEndIndex, endIndex, scopesList != null ? scopesList.getScopePath() : null));
 
 		this._lastTokenEndIndex = endIndex;
 	}
@@ -232,19 +246,19 @@ IToken[] getResult(final StateStack stack, final int lineLength) {
 		return this._tokens.toArray(IToken[]::new);
 	}
 
-	int[] getBinaryResult(final StateStack stack, final int lineLength) {
-		if (!this._binaryTokens.isEmpty() && getElementAt(this._binaryTokens, -2) == lineLength - 1) {
+	BinaryTokenBuffer getBinaryResult(final StateStack stack, final int lineLength) {
+		final var binaryTokens = this._binaryTokens;
+		if (!binaryTokens.isEmpty() && binaryTokens.getStartIndex(binaryTokens.getTokenCount() - 1) == lineLength - 1) {
 			// pop produced token for newline
-			removeLastElement(this._binaryTokens);
-			removeLastElement(this._binaryTokens);
+			binaryTokens.removeLastToken();
 		}
 
-		if (this._binaryTokens.isEmpty()) {
+		if (binaryTokens.isEmpty()) {
 			this._lastTokenEndIndex = -1;
 			this.produce(stack, lineLength);
-			this._binaryTokens.set(_binaryTokens.size() - 2, 0);
+			binaryTokens.setStartIndex(binaryTokens.getTokenCount() - 1, 0);
 		}
 
-		return _binaryTokens.stream().mapToInt(Integer::intValue).toArray();
+		return binaryTokens;
 	}
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExpProfiler;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExpProfiler.PatternStats;
+import org.eclipse.tm4e.core.internal.rule.Rule;
+import org.eclipse.tm4e.core.internal.rule.RuleId;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Statistics recorded by the {@link OnigRegExpProfiler} for the patterns of a grammar, mapped back to the rules
+ * defining them and sorted by total execution time in descending order.
+ * <p>
+ * End and while patterns with back references are compiled per match with the captured text inserted and therefore
+ * cannot be mapped back to their rule. They are only listed by {@link OnigRegExpProfiler#getStats()}.
+ *
+ * @see Grammar#getRegExpProfileReport()
+ */
+public final class RegExpProfileReport {
+
+	@NonNullByDefault({})
+	public record RuleInfo(RuleId ruleId, @Nullable String name) {
+	}
+
+	@NonNullByDefault({})
+	public record Entry(PatternStats stats, List<RuleInfo> rules) {
+	}
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	RegExpProfileReport(final Map<RuleId, Rule> rules) {
+		final var rulesByPattern = new HashMap<String, List<RuleInfo>>();
+		final var patterns = new ArrayList<String>();
+		rules.forEach((ruleId, rule) -> {
+			final var ruleInfo = new RuleInfo(ruleId, rule.getName(null, null));
+			patterns.clear();
+			rule.collectRegExpSources(patterns);
+			for (final var pattern : patterns) {
+				final var patternRules = rulesByPattern.computeIfAbsent(pattern, p -> new ArrayList<>());
+				if (!patternRules.contains(ruleInfo)) {
+					patternRules.add(ruleInfo);
+				}
+			}
+		});
+
+		for (final var stats : OnigRegExpProfiler.getStats()) {
+			final var patternRules = rulesByPattern.getOrDefault(stats.pattern(), List.of());
+			if (!patternRules.isEmpty()) {
+				entries.add(new Entry(stats, patternRules));
+			}
+		}
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Writes the report as JSON array with one object per pattern.
+	 */
+	public void writeJson(final Appendable out) {
+		final var json = new JsonArray();
+		for (final var entry : entries) {
+			final var stats = entry.stats;
+			final var jsonEntry = new JsonObject();
+			jsonEntry.addProperty("pattern", stats.pattern());
+			jsonEntry.addProperty("calls", stats.calls());
+			jsonEntry.addProperty("matches", stats.matches());
+			jsonEntry.addProperty("totalNanos", stats.totalNanos());
+			jsonEntry.addProperty("maxNanos", stats.maxNanos());
+			final var jsonRules = new JsonArray();
+			for (final var rule : entry.rules) {
+				final var jsonRule = new JsonObject();
+				jsonRule.addProperty("id", rule.ruleId.id);
+				jsonRule.addProperty("name", rule.name);
+				jsonRules.add(jsonRule);
+			}
+			jsonEntry.add("rules", jsonRules);
+			json.add(jsonEntry);
+		}
+		GSON.toJson(json, out);
+	}
+
+	/**
+	 * @return the report as JSON
+	 */
+	@Override
+	public String toString() {
+		final var out = new StringBuilder();
+		writeJson(out);
+		return out.toString();
+	}
+}
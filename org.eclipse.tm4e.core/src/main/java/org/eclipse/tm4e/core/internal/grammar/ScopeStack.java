@@ -16,7 +16,10 @@
  */
 package org.eclipse.tm4e.core.internal.grammar;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -29,10 +32,15 @@
  */
 public final class ScopeStack {
 
+	/**
+	 * Maximum number of children a node keeps track of for re-use by {@link #push(String)}.
+	 */
+	private static final int MAX_CACHED_CHILDREN = 16;
+
 	@Nullable
 	static ScopeStack push(@Nullable ScopeStack path, final List<String> scopeNames) {
 		for (final var name : scopeNames) {
-			path = new ScopeStack(path, name);
+			path = path == null ? new ScopeStack(null, name) : path.push(name);
 		}
 		return path;
 	}
@@ -63,25 +71,111 @@ public static ScopeStack from(final List<String> segments) {
 	public final ScopeStack parent;
 	public final String scopeName;
 
+	private final int hashCode;
+
+	/**
+	 * Lazily computed result of {@link #getSegments()}. The list is immutable, thus racy initialization by concurrent
+	 * threads is harmless.
+	 */
+	@Nullable
+	private List<String> segments;
+
+	/**
+	 * Children created by {@link #push(String)}. The array is replaced on modification, concurrent pushes may thus lose
+	 * an entry, which is harmless.
+	 */
+	private volatile ScopeStack @Nullable [] children;
+
 	public ScopeStack(@Nullable final ScopeStack parent, final String scopeName) {
 		this.parent = parent;
 		this.scopeName = scopeName;
+		this.hashCode = 31 * (parent == null ? 0 : parent.hashCode) + scopeName.hashCode();
 	}
 
+	/**
+	 * Returns the child scope with the given name. Pushing the same scope name onto the same node usually returns the
+	 * same instance, so that equal scope stacks can mostly be compared by identity.
+	 */
 	public ScopeStack push(final String scopeName) {
-		return new ScopeStack(this, scopeName);
+		final var children = this.children;
+		if (children == null) {
+			final var child = new ScopeStack(this, scopeName);
+			this.children = new ScopeStack[] { child };
+			return child;
+		}
+
+		for (final var child : children) {
+			if (child.scopeName.equals(scopeName))
+				return child;
+		}
+
+		final var child = new ScopeStack(this, scopeName);
+		if (children.length < MAX_CACHED_CHILDREN) {
+			final var newChildren = Arrays.copyOf(children, children.length + 1);
+			newChildren[children.length] = child;
+			this.children = newChildren;
+		}
+		return child;
 	}
 
+	/**
+	 * @return an unmodifiable list of the scope names from the root scope up to and including this scope
+	 */
 	public List<String> getSegments() {
+		var segments = this.segments;
+		if (segments == null) {
+			// stop at the first ancestor that already has its segments computed
+			int depth = 1;
+			List<String> ancestorSegments = Collections.emptyList();
+			for (var item = this.parent; item != null; item = item.parent) {
+				final var itemSegments = item.segments;
+				if (itemSegments != null) {
+					ancestorSegments = itemSegments;
+					break;
+				}
+				depth++;
+			}
+
+			final var ancestorSize = ancestorSegments.size();
+			final var names = new String[ancestorSize + depth];
+			for (int i = 0; i < ancestorSize; i++) {
+				names[i] = ancestorSegments.get(i);
+			}
+			var item = this;
+			for (int i = names.length - 1; i >= ancestorSize; i--) {
+				names[i] = item.scopeName;
+				if (i > ancestorSize) {
+					item = castNonNull(item.parent);
+				}
+			}
+			segments = this.segments = Collections.unmodifiableList(Arrays.asList(names));
+		}
+		return segments;
+	}
+
+	@Override
+	public boolean equals(@Nullable final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof final ScopeStack other) || hashCode != other.hashCode)
+			return false;
+
 		@Nullable
-		ScopeStack item = this;
-		final var result = new ArrayList<String>();
-		while (item != null) {
-			result.add(item.scopeName);
-			item = item.parent;
+		ScopeStack a = this;
+		@Nullable
+		ScopeStack b = other;
+		while (a != b) {
+			if (a == null || b == null || a.hashCode != b.hashCode || !a.scopeName.equals(b.scopeName))
+				return false;
+			a = a.parent;
+			b = b.parent;
 		}
-		Collections.reverse(result);
-		return result;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
 	}
 
 	@Override
@@ -41,7 +41,7 @@ public final class StateStack implements IStateStack {
 
 	@NonNullByDefault({}) // https://github.com/eclipse-jdt/eclipse.jdt.core/issues/233
 	record Frame(
-			RuleId ruleId,
+			int ruleId,
 			@Nullable Integer enterPos,
 			@Nullable Integer anchorPos,
 			boolean beginRuleCapturedEOL,
@@ -53,7 +53,7 @@ record Frame(
 
 	public static final StateStack NULL = new StateStack(
 			null,
-			RuleId.NO_RULE,
+			RuleId.NO_RULE_ID,
 			0,
 			0,
 			false,
@@ -89,7 +89,7 @@ record Frame(
 	/**
 	 * The state (rule) that this element represents.
 	 */
-	private final RuleId ruleId;
+	private final int ruleId;
 
 	/**
 	 * The state has entered and captured \n. This means that the next line should have an anchorPosition of 0.
@@ -115,9 +115,16 @@ record Frame(
 	@Nullable
 	final AttributedScopeStack contentNameScopesList;
 
+	/**
+	 * Hash of the properties compared by {@link #_structuralEquals(StateStack, StateStack)}.
+	 */
+	private final int structuralHashCode;
+
+	private final int hashCode;
+
 	StateStack(
 			@Nullable final StateStack parent,
-			final RuleId ruleId,
+			final int ruleId,
 			final int enterPos,
 			final int anchorPos,
 			final boolean beginRuleCapturedEOL,
@@ -134,6 +141,12 @@ record Frame(
 		this.endRule = endRule;
 		this.nameScopesList = nameScopesList;
 		this.contentNameScopesList = contentNameScopesList;
+
+		int structuralHashCode = parent == null ? 0 : parent.structuralHashCode;
+		structuralHashCode = 31 * structuralHashCode + ruleId;
+		structuralHashCode = 31 * structuralHashCode + Objects.hashCode(endRule);
+		this.structuralHashCode = 31 * structuralHashCode + depth;
+		hashCode = 31 * this.structuralHashCode + Objects.hashCode(contentNameScopesList);
 	}
 
 	@Override
@@ -148,7 +161,7 @@ private static boolean _equals(final StateStack a, final StateStack b) {
 		if (a == b) {
 			return true;
 		}
-		if (!_structuralEquals(a, b)) {
+		if (a.hashCode != b.hashCode || !_structuralEquals(a, b)) {
 			return false;
 		}
 		return AttributedScopeStack.equals(a.contentNameScopesList, b.contentNameScopesList);
@@ -175,8 +188,9 @@ private static boolean _structuralEquals(
 				return false;
 			}
 
-			if (a.depth != b.depth
-					|| !Objects.equals(a.ruleId, b.ruleId)
+			if (a.structuralHashCode != b.structuralHashCode
+					|| a.depth != b.depth
+					|| a.ruleId != b.ruleId
 					|| !Objects.equals(a.endRule, b.endRule)) {
 				return false;
 			}
@@ -194,11 +208,7 @@ public int getDepth() {
 
 	@Override
 	public int hashCode() {
-		int result = 31 + Objects.hashCode(contentNameScopesList);
-		result = 31 * result + Objects.hashCode(endRule);
-		result = 31 * result + Objects.hashCode(parent);
-		result = 31 * result + Objects.hashCode(ruleId);
-		return 31 * result + depth;
+		return hashCode;
 	}
 
 	void reset() {
@@ -222,7 +232,7 @@ StateStack safePop() {
 	}
 
 	StateStack push(
-			final RuleId ruleId,
+			final int ruleId,
 			final int enterPos,
 			final int anchorPos,
 			final boolean beginRuleCapturedEOL,
@@ -49,8 +49,6 @@ public interface IRawGrammar {
 	@Nullable
 	String getFirstLineMatch();
 
-	void setRepository(IRawRepository repository);
-
 	IRawRule toRawRule();
 
 }
@@ -44,8 +44,4 @@ static IRawRepository merge(@Nullable final IRawRepository... sources) {
 	IRawRule getBase();
 
 	IRawRule getSelf();
-
-	void setSelf(IRawRule raw);
-
-	void setBase(IRawRule base);
 }
@@ -90,14 +90,14 @@ public String getName() {
 		return (Collection<IRawRule>) get(PATTERNS);
 	}
 
+	/**
+	 * @return the repository of the grammar or an empty repository, which is not added to the grammar, since raw
+	 *         grammars are shared by all grammar instances
+	 */
 	@Override
 	public IRawRepository getRepository() {
-		var repo = (IRawRepository) get(RawRule.REPOSITORY);
-		if (repo == null) {
-			repo = new RawRepository();
-			setRepository(repo);
-		}
-		return repo;
+		final var repo = (IRawRepository) get(RawRule.REPOSITORY);
+		return repo == null ? new RawRepository() : repo;
 	}
 
 	private Object getSafe(@Nullable final Object key) {
@@ -136,11 +136,6 @@ public void setProperty(final String name, final Object value) {
 		put(name, value);
 	}
 
-	@Override
-	public void setRepository(final IRawRepository repository) {
-		super.put(RawRule.REPOSITORY, repository);
-	}
-
 	@Override
 	public IRawRule toRawRule() {
 		return new RawRule() {
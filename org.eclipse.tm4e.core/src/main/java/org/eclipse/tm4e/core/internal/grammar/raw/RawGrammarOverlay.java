@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.parser.PropertySettable;
+
+/**
+ * View of a raw grammar whose repository additionally contains the <code>$self</code> and <code>$base</code> rules
+ * of the grammar instance using it.
+ * <p>
+ * Raw grammars are shared by all grammar instances of a registry, e.g. the CSS and JavaScript grammars embedded by the
+ * HTML, Markdown and PHP grammars. Instead of cloning the raw grammar for every grammar instance, the
+ * <code>$self</code> and <code>$base</code> rules are added by this view and the raw grammar is never modified.
+ */
+public final class RawGrammarOverlay implements IRawGrammar {
+
+	private final class RepositoryOverlay implements IRawRepository {
+		final IRawRepository repository = grammar.getRepository();
+		final IRawRule self = new RawRule()
+				.setName(grammar.getScopeName())
+				.setPatterns(grammar.getPatterns());
+		final IRawRule base;
+
+		RepositoryOverlay(@Nullable final IRawRule base) {
+			this.base = base == null ? self : base;
+		}
+
+		@Override
+		public void putEntries(final PropertySettable<IRawRule> target) {
+			repository.putEntries(target);
+			target.setProperty(RawRepository.DOLLAR_SELF, self);
+			target.setProperty(RawRepository.DOLLAR_BASE, base);
+		}
+
+		@Override
+		public @Nullable IRawRule getRule(final String name) {
+			return switch (name) {
+				case RawRepository.DOLLAR_SELF -> self;
+				case RawRepository.DOLLAR_BASE -> base;
+				default -> repository.getRule(name);
+			};
+		}
+
+		@Override
+		public IRawRule getBase() {
+			return base;
+		}
+
+		@Override
+		public IRawRule getSelf() {
+			return self;
+		}
+	}
+
+	private final IRawGrammar grammar;
+	private final RepositoryOverlay repository;
+
+	/**
+	 * @param base the <code>$base</code> rule or <code>null</code> if it is the <code>$self</code> rule of the grammar
+	 */
+	public RawGrammarOverlay(final IRawGrammar grammar, @Nullable final IRawRule base) {
+		this.grammar = grammar;
+		this.repository = new RepositoryOverlay(base);
+	}
+
+	@Override
+	public IRawRepository getRepository() {
+		return repository;
+	}
+
+	@Override
+	public String getScopeName() {
+		return grammar.getScopeName();
+	}
+
+	@Override
+	public @Nullable Collection<IRawRule> getPatterns() {
+		return grammar.getPatterns();
+	}
+
+	@Override
+	public @Nullable Map<String, IRawRule> getInjections() {
+		return grammar.getInjections();
+	}
+
+	@Override
+	public @Nullable String getInjectionSelector() {
+		return grammar.getInjectionSelector();
+	}
+
+	@Override
+	public Collection<String> getFileTypes() {
+		return grammar.getFileTypes();
+	}
+
+	@Override
+	public @Nullable String getName() {
+		return grammar.getName();
+	}
+
+	@Override
+	public @Nullable String getFirstLineMatch() {
+		return grammar.getFirstLineMatch();
+	}
+
+	@Override
+	public IRawRule toRawRule() {
+		return new RawRule() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public @Nullable String getName() {
+				return RawGrammarOverlay.this.getName();
+			}
+
+			@Override
+			public @Nullable Collection<IRawRule> getPatterns() {
+				return RawGrammarOverlay.this.getPatterns();
+			}
+
+			@Override
+			public IRawRepository getRepository() {
+				return repository;
+			}
+		};
+	}
+}
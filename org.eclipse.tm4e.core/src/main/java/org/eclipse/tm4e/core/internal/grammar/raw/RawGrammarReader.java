@@ -16,6 +16,15 @@
  */
 package org.eclipse.tm4e.core.internal.grammar.raw;
 
+import static java.lang.System.Logger.Level.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.System.Logger;
+import java.nio.ByteBuffer;
+
 import org.eclipse.tm4e.core.internal.parser.PListParser;
 import org.eclipse.tm4e.core.internal.parser.PListParserJSON;
 import org.eclipse.tm4e.core.internal.parser.PListParserXML;
@@ -23,12 +32,15 @@
 import org.eclipse.tm4e.core.internal.parser.PListPath;
 import org.eclipse.tm4e.core.internal.parser.PropertySettable;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IGrammarSource.ContentType;
 
 /**
  * TextMate Grammar reader utilities.
  */
 public final class RawGrammarReader {
 
+	private static final Logger LOGGER = System.getLogger(RawGrammarReader.class.getName());
+
 	public static final PropertySettable.Factory<PListPath> OBJECT_FACTORY = path -> {
 		if (path.size() == 0) {
 			return new RawGrammar();
@@ -44,18 +56,55 @@ public final class RawGrammarReader {
 	private static final PListParser<RawGrammar> XML_PARSER = new PListParserXML<>(OBJECT_FACTORY);
 	private static final PListParser<RawGrammar> YAML_PARSER = new PListParserYAML<>(OBJECT_FACTORY);
 
+	/**
+	 * Reads the grammar from its {@link IGrammarSource#getSnapshot() snapshot} if present and created from the current
+	 * content of the grammar, otherwise parses its content.
+	 */
 	public static IRawGrammar readGrammar(final IGrammarSource source) throws Exception {
-		try (var reader = source.getReader()) {
-			switch (source.getContentType()) {
-				case JSON:
-					return JSON_PARSER.parse(reader);
-				case YAML:
-					return YAML_PARSER.parse(reader);
-				case XML:
-				default:
-					return XML_PARSER.parse(reader);
+		ByteBuffer snapshot = null;
+		try {
+			snapshot = source.getSnapshot();
+		} catch (final Exception ex) {
+			LOGGER.log(WARNING, "Reading snapshot of grammar [{0}] failed: {1}", source.getFilePath(), ex.getMessage(), ex);
+		}
+
+		if (snapshot == null) {
+			try (var reader = source.getReader()) {
+				return parse(source.getContentType(), reader);
 			}
 		}
+
+		// the content is needed to check if the snapshot is outdated
+		final var content = readContent(source);
+		try {
+			final var grammar = RawGrammarSnapshot.read(snapshot, content);
+			if (grammar != null)
+				return grammar;
+			LOGGER.log(DEBUG, "Ignoring outdated snapshot of grammar [{0}]", source.getFilePath());
+		} catch (final Exception ex) {
+			LOGGER.log(WARNING, "Reading snapshot of grammar [{0}] failed: {1}", source.getFilePath(), ex.getMessage(), ex);
+		}
+		return parse(source.getContentType(), new StringReader(content));
+	}
+
+	static String readContent(final IGrammarSource source) throws IOException {
+		try (var reader = source.getReader()) {
+			final var content = new StringWriter();
+			reader.transferTo(content);
+			return content.toString();
+		}
+	}
+
+	static RawGrammar parse(final ContentType contentType, final Reader reader) throws Exception {
+		switch (contentType) {
+			case JSON:
+				return JSON_PARSER.parse(reader);
+			case YAML:
+				return YAML_PARSER.parse(reader);
+			case XML:
+			default:
+				return XML_PARSER.parse(reader);
+		}
 	}
 
 	/**
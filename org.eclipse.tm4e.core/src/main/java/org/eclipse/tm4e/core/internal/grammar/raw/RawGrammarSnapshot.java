@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+
+/**
+ * Binary snapshot of a parsed {@link IRawGrammar}.
+ * <p>
+ * Reading a snapshot creates the raw grammar directly, without the XML, JSON or YAML parser and without reflection.
+ * All strings, e.g. scope names and patterns shared by multiple rules, are stored once in a string table.
+ * <p>
+ * Layout, all numbers big-endian, counts and string indexes as unsigned variable-length integers:
+ *
+ * <pre>
+ * magic "TM4S" | version | grammar fingerprint | string count | (UTF-8 byte count | UTF-8 bytes)* | value
+ *
+ * value: NULL | TRUE | FALSE
+ *      | STRING string-index | DATE string-index | INTEGER int32 | REAL float32
+ *      | LIST count value*
+ *      | GRAMMAR|RULE|REPOSITORY|CAPTURES count (key-string-index value)*
+ * </pre>
+ *
+ * The grammar fingerprint is computed from the content of the grammar the snapshot was created from, so that a
+ * snapshot is not used once the grammar was modified, e.g. in the workspace or a PDE launch.
+ * <p>
+ * Snapshots are stored next to the grammar with the file name suffix {@value #FILE_SUFFIX} and are picked up by
+ * {@link RawGrammarReader#readGrammar(IGrammarSource)} via {@link IGrammarSource#getSnapshot()}. They can be created
+ * with {@link #main(String...)}.
+ */
+public final class RawGrammarSnapshot {
+
+	public static final String FILE_SUFFIX = ".tmsnapshot";
+
+	private static final int MAGIC = 'T' << 24 | 'M' << 16 | '4' << 8 | 'S';
+
+	/**
+	 * to be increased on every change of the layout or of the raw grammar model, snapshots of other versions are
+	 * ignored
+	 */
+	private static final int VERSION = 2;
+
+	private static final byte NULL = 0;
+	private static final byte TRUE = 1;
+	private static final byte FALSE = 2;
+	private static final byte STRING = 3;
+	private static final byte DATE = 4;
+	private static final byte INTEGER = 5;
+	private static final byte REAL = 6;
+	private static final byte LIST = 7;
+	private static final byte GRAMMAR = 8;
+	private static final byte RULE = 9;
+	private static final byte REPOSITORY = 10;
+	private static final byte CAPTURES = 11;
+
+	/**
+	 * Writes a snapshot for each grammar file found in the source directory to the same relative path in the target
+	 * directory, e.g. <code>javascript/JavaScript.tmLanguage.json</code> to
+	 * <code>javascript/JavaScript.tmLanguage.json.tmsnapshot</code>.
+	 *
+	 * @param args the source directory and the target directory, which may be the same
+	 */
+	public static void main(final String... args) throws Exception {
+		if (args.length != 2)
+			throw new IllegalArgumentException("Usage: RawGrammarSnapshot <source directory> <target directory>");
+
+		final var sourceDir = Path.of(args[0]).toAbsolutePath().normalize();
+		final var targetDir = Path.of(args[1]).toAbsolutePath().normalize();
+		try (var files = Files.walk(sourceDir)) {
+			for (final var file : (Iterable<Path>) files::iterator) {
+				final var fileName = file.getFileName().toString();
+				if (!Files.isRegularFile(file) || !fileName.toLowerCase().contains(".tmlanguage") || fileName.endsWith(FILE_SUFFIX)
+						|| !targetDir.equals(sourceDir) && file.startsWith(targetDir))
+					continue;
+
+				final var source = IGrammarSource.fromFile(file);
+				final var content = RawGrammarReader.readContent(source);
+				final var grammar = RawGrammarReader.parse(source.getContentType(), new StringReader(content));
+				final var snapshot = targetDir.resolve(sourceDir.relativize(file)).resolveSibling(fileName + FILE_SUFFIX);
+				Files.createDirectories(snapshot.getParent());
+				try (var out = Files.newOutputStream(snapshot)) {
+					write(grammar, content, out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the fingerprint of the given grammar content stored in a snapshot
+	 */
+	static long fingerprint(final String grammarContent) {
+		final var checksum = new CRC32C();
+		checksum.update(grammarContent.getBytes(StandardCharsets.UTF_8));
+		return (long) grammarContent.length() << 32 | checksum.getValue();
+	}
+
+	/**
+	 * @param grammarContent the content of the grammar the snapshot was created from
+	 *
+	 * @return the grammar stored in the given snapshot or <code>null</code> if the snapshot was written by another
+	 *         version of this class or for another content of the grammar
+	 *
+	 * @throws IllegalArgumentException if the snapshot is corrupt
+	 */
+	@Nullable
+	public static RawGrammar read(final ByteBuffer snapshot, final String grammarContent) {
+		try {
+			return new Reader(snapshot).read(fingerprint(grammarContent));
+		} catch (final BufferUnderflowException | ClassCastException | IndexOutOfBoundsException | NegativeArraySizeException
+				| DateTimeParseException ex) {
+			throw new IllegalArgumentException("Corrupt grammar snapshot", ex);
+		}
+	}
+
+	/**
+	 * @param grammarContent the content of the grammar the given raw grammar was parsed from
+	 *
+	 * @throws IllegalArgumentException if the grammar contains values not created by the grammar parsers
+	 */
+	public static void write(final IRawGrammar grammar, final String grammarContent, final OutputStream out)
+			throws IOException {
+		final var writer = new Writer();
+		writer.writeValue(grammar);
+
+		final var header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeLong(fingerprint(grammarContent));
+		writeVarInt(header, writer.strings.size());
+		for (final String string : writer.strings) {
+			final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(header, bytes.length);
+			header.write(bytes);
+		}
+		writer.body.writeTo(header);
+		header.flush();
+	}
+
+	private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static final class Writer {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+		final DataOutputStream out = new DataOutputStream(body);
+		final List<String> strings = new ArrayList<>();
+		final Map<String, Integer> stringIndexes = new HashMap<>();
+
+		void writeString(final String string) throws IOException {
+			writeVarInt(out, stringIndexes.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			}));
+		}
+
+		void writeValue(final @Nullable Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(NULL);
+			} else if (value instanceof final String string) {
+				out.writeByte(STRING);
+				writeString(string);
+			} else if (value instanceof final Boolean bool) {
+				out.writeByte(bool ? TRUE : FALSE);
+			} else if (value instanceof final Integer integer) {
+				out.writeByte(INTEGER);
+				out.writeInt(integer);
+			} else if (value instanceof final Float real) {
+				out.writeByte(REAL);
+				out.writeFloat(real);
+			} else if (value instanceof final ZonedDateTime date) {
+				out.writeByte(DATE);
+				writeString(date.toString());
+			} else if (value instanceof final List<?> list) {
+				out.writeByte(LIST);
+				writeVarInt(out, list.size());
+				for (final var element : list) {
+					writeValue(element);
+				}
+			} else if (value instanceof final RawGrammar map) {
+				writeMap(GRAMMAR, map);
+			} else if (value instanceof final RawRepository map) {
+				writeMap(REPOSITORY, map);
+			} else if (value instanceof final RawCaptures map) {
+				writeMap(CAPTURES, map);
+			} else if (value instanceof final RawRule map) {
+				writeMap(RULE, map);
+			} else
+				throw new IllegalArgumentException("Unsupported grammar value type: " + value.getClass().getName());
+		}
+
+		void writeMap(final byte tag, final Map<String, ?> map) throws IOException {
+			out.writeByte(tag);
+			writeVarInt(out, map.size());
+			for (final var entry : map.entrySet()) {
+				writeString(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+	}
+
+	private static final class Reader {
+		final ByteBuffer in;
+		String[] strings = new String[0];
+
+		Reader(final ByteBuffer snapshot) {
+			in = snapshot.duplicate();
+		}
+
+		@Nullable
+		RawGrammar read(final long grammarFingerprint) {
+			if (in.remaining() < 16 || in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != grammarFingerprint)
+				return null;
+
+			strings = new String[readVarInt()];
+			byte[] buffer = new byte[256];
+			for (int i = 0; i < strings.length; i++) {
+				final int length = readVarInt();
+				if (length > buffer.length) {
+					buffer = new byte[Math.max(length, buffer.length * 2)];
+				}
+				in.get(buffer, 0, length);
+				strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+			}
+
+			final var grammar = (RawGrammar) readValue();
+			if (in.hasRemaining())
+				throw new IllegalArgumentException("Corrupt grammar snapshot: " + in.remaining() + " trailing bytes");
+			return grammar;
+		}
+
+		int readVarInt() {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				final byte b = in.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0)
+					return value;
+			}
+			throw new IllegalArgumentException("Corrupt grammar snapshot: malformed variable-length integer");
+		}
+
+		String readString() {
+			return strings[readVarInt()];
+		}
+
+		@Nullable
+		Object readValue() {
+			final byte tag = in.get();
+			return switch (tag) {
+				case NULL -> null;
+				case TRUE -> Boolean.TRUE;
+				case FALSE -> Boolean.FALSE;
+				case STRING -> readString();
+				case DATE -> ZonedDateTime.parse(readString());
+				case INTEGER -> in.getInt();
+				case REAL -> in.getFloat();
+				case LIST -> {
+					final int size = readVarInt();
+					final List<@Nullable Object> list = new ArrayList<>(size);
+					for (int i = 0; i < size; i++) {
+						list.add(readValue());
+					}
+					yield list;
+				}
+				case GRAMMAR -> readMap(new RawGrammar());
+				case RULE -> readMap(new RawRule());
+				case REPOSITORY -> readMap(new RawRepository());
+				case CAPTURES -> readMap(new RawCaptures());
+				default -> throw new IllegalArgumentException("Corrupt grammar snapshot: unknown tag " + tag);
+			};
+		}
+
+		@SuppressWarnings("unchecked")
+		<M extends Map<String, ?>> M readMap(final M map) {
+			final int size = readVarInt();
+			final var entries = (Map<String, @Nullable Object>) map;
+			for (int i = 0; i < size; i++) {
+				final String key = readString();
+				entries.put(key, readValue());
+			}
+			return map;
+		}
+	}
+
+	private RawGrammarSnapshot() {
+	}
+}
@@ -44,21 +44,11 @@ public IRawRule getBase() {
 		return getSafe(DOLLAR_BASE);
 	}
 
-	@Override
-	public void setBase(final IRawRule base) {
-		super.put(DOLLAR_BASE, base);
-	}
-
 	@Override
 	public IRawRule getSelf() {
 		return getSafe(DOLLAR_SELF);
 	}
 
-	@Override
-	public void setSelf(final IRawRule self) {
-		super.put(DOLLAR_SELF, self);
-	}
-
 	@Override
 	public void putEntries(final PropertySettable<IRawRule> target) {
 		for (final var entry : entrySet()) {
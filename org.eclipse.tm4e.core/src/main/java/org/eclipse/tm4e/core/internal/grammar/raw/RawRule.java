@@ -14,10 +14,10 @@
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.parser.PropertySettable;
-import org.eclipse.tm4e.core.internal.rule.RuleId;
 
 public class RawRule extends HashMap<String, @Nullable Object> implements IRawRule, PropertySettable<Object> {
 
@@ -28,7 +28,6 @@ public class RawRule extends HashMap<String, @Nullable Object> implements IRawRu
 	private static final String CONTENT_NAME = "contentName";
 	private static final String END = "end";
 	public static final String END_CAPTURES = "endCaptures";
-	private static final String ID = "id";
 	private static final String INCLUDE = "include";
 	private static final String MATCH = "match";
 	private static final String NAME = "name";
@@ -39,17 +38,6 @@ public class RawRule extends HashMap<String, @Nullable Object> implements IRawRu
 
 	private static final long serialVersionUID = 1L;
 
-	@Nullable
-	@Override
-	public RuleId getId() {
-		return (RuleId) get(ID);
-	}
-
-	@Override
-	public void setId(final RuleId id) {
-		super.put(ID, id);
-	}
-
 	@Nullable
 	@Override
 	public String getName() {
@@ -76,21 +64,33 @@ public String getMatch() {
 	@Nullable
 	@Override
 	public IRawCaptures getCaptures() {
-		updateCaptures(CAPTURES);
-		return (IRawCaptures) get(CAPTURES);
+		return getCaptures(CAPTURES);
 	}
 
-	private void updateCaptures(final String name) {
+	/**
+	 * Captures may also be specified as list, the first element being capture 1. Since raw grammars are shared by all
+	 * grammar instances, the list is not replaced but converted on every access.
+	 */
+	@Nullable
+	private IRawCaptures getCaptures(final String name) {
 		final Object captures = get(name);
 		if (captures instanceof final List<?> capturesList) {
-			final var rawCaptures = new RawRule();
+			final var rawCaptures = new RawCaptures();
 			int i = 0;
 			for (final var capture : capturesList) {
 				i++;
-				rawCaptures.put(Integer.toString(i), capture);
+				if (capture instanceof final RawRule rule) {
+					rawCaptures.put(Integer.toString(i), rule);
+				} else if (capture instanceof final Map<?, ?> map) {
+					// the parsers create the elements of a "captures" list as RawCaptures
+					final var rule = new RawRule();
+					map.forEach((key, value) -> rule.put((String) key, value));
+					rawCaptures.put(Integer.toString(i), rule);
+				}
 			}
-			super.put(name, rawCaptures);
+			return rawCaptures;
 		}
+		return (IRawCaptures) captures;
 	}
 
 	@Nullable
@@ -119,8 +119,7 @@ public RawRule setInclude(@Nullable final String include) {
 	@Nullable
 	@Override
 	public IRawCaptures getBeginCaptures() {
-		updateCaptures(BEGIN_CAPTURES);
-		return (IRawCaptures) get(BEGIN_CAPTURES);
+		return getCaptures(BEGIN_CAPTURES);
 	}
 
 	@Nullable
@@ -132,15 +131,13 @@ public String getEnd() {
 	@Nullable
 	@Override
 	public IRawCaptures getEndCaptures() {
-		updateCaptures(END_CAPTURES);
-		return (IRawCaptures) get(END_CAPTURES);
+		return getCaptures(END_CAPTURES);
 	}
 
 	@Nullable
 	@Override
 	public IRawCaptures getWhileCaptures() {
-		updateCaptures(WHILE_CAPTURES);
-		return (IRawCaptures) get(WHILE_CAPTURES);
+		return getCaptures(WHILE_CAPTURES);
 	}
 
 	@Nullable
@@ -0,0 +1,410 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Set of the UTF-8 bytes a match of a regular expression can start with.
+ * <p>
+ * Most TextMate patterns start with a literal, e.g. a keyword or a punctuation character, or with a small character
+ * class. If none of the possible first bytes occurs in the searched string at or after the search position, the
+ * regular expression cannot match and the regex engine does not need to be invoked at all.
+ * <p>
+ * The set is derived from the pattern source by a conservative analysis of the first atom of each top-level
+ * alternative. Patterns starting with anything that is not understood, e.g. anchors, look-arounds, inline options,
+ * optional atoms, back references or Unicode properties, have no first byte set.
+ */
+final class OnigFirstByteSet {
+
+	/**
+	 * @return <code>null</code> if the possible first bytes of a match cannot be determined or if a match can start with
+	 *         any byte
+	 */
+	static @Nullable OnigFirstByteSet of(final String pattern) {
+		final var parser = new Parser(pattern);
+		if (!parser.parseAlternatives() || parser.pos != pattern.length())
+			return null;
+
+		final long[] bits = parser.bits;
+		if ((bits[0] & bits[1] & bits[2] & bits[3]) == -1L)
+			return null;
+		return new OnigFirstByteSet(bits);
+	}
+
+	/** bitmap of 256 bits, one per possible first byte */
+	private final long[] bits;
+
+	private OnigFirstByteSet(final long[] bits) {
+		this.bits = bits;
+	}
+
+	/**
+	 * @return <code>false</code> if a match of the regular expression cannot start at or after the given byte index of
+	 *         the given string
+	 */
+	boolean canMatch(final OnigString str, final int byteIndex) {
+		final int[] lastByteIndexes = str.getLastByteIndexes();
+		for (int i = 0; i < bits.length; i++) {
+			long remaining = bits[i];
+			while (remaining != 0) {
+				final int b = (i << 6) + Long.numberOfTrailingZeros(remaining);
+				if (lastByteIndexes[b] >= byteIndex)
+					return true;
+				remaining &= remaining - 1;
+			}
+		}
+		return false;
+	}
+
+	boolean contains(final int b) {
+		return (bits[b >> 6] & 1L << b) != 0;
+	}
+
+	/**
+	 * Recursive descent parser for the subset of the Oniguruma syntax that is relevant to determine the first bytes of
+	 * a match. All parse methods return <code>false</code> if they encounter something they do not understand.
+	 */
+	private static final class Parser {
+
+		final String pattern;
+		final long[] bits = new long[4];
+		int pos;
+
+		Parser(final String pattern) {
+			this.pattern = pattern;
+		}
+
+		private boolean hasCharAt(final int index, final char ch) {
+			return index < pattern.length() && pattern.charAt(index) == ch;
+		}
+
+		/**
+		 * Parses alternatives until the end of the pattern or the closing parenthesis of the enclosing group.
+		 */
+		boolean parseAlternatives() {
+			while (true) {
+				if (!parseFirstAtom() || !skipToEndOfAlternative())
+					return false;
+				if (!hasCharAt(pos, '|'))
+					return true;
+				pos++;
+			}
+		}
+
+		private boolean parseFirstAtom() {
+			if (pos >= pattern.length())
+				return false;
+
+			switch (pattern.charAt(pos)) {
+				case '(':
+					if (!parseGroup())
+						return false;
+					break;
+				case '[':
+					if (!parseCharClass())
+						return false;
+					break;
+				case '\\':
+					if (!parseEscape())
+						return false;
+					break;
+				case '|', ')', '.', '^', '$', '*', '+', '?', '{':
+					return false;
+				default:
+					final int codePoint = pattern.codePointAt(pos);
+					addCodePoint(bits, codePoint);
+					pos += Character.charCount(codePoint);
+			}
+
+			// the atom must not be optional
+			if (pos < pattern.length()) {
+				switch (pattern.charAt(pos)) {
+					case '?', '*':
+						return false;
+					case '{':
+						if (hasCharAt(pos + 1, '0') || hasCharAt(pos + 1, ','))
+							return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean parseGroup() {
+			pos++; // skip '('
+			if (hasCharAt(pos, '?')) {
+				if (hasCharAt(pos + 1, ':') || hasCharAt(pos + 1, '>')) {
+					pos += 2;
+				} else if (hasCharAt(pos + 1, '<') && pos + 2 < pattern.length()
+						&& Character.isLetter(pattern.charAt(pos + 2))) {
+					// named group
+					final int nameEnd = pattern.indexOf('>', pos);
+					if (nameEnd < 0)
+						return false;
+					pos = nameEnd + 1;
+				} else
+					return false;
+			}
+			if (!parseAlternatives() || !hasCharAt(pos, ')'))
+				return false;
+			pos++;
+			return true;
+		}
+
+		private boolean parseEscape() {
+			if (pos + 1 >= pattern.length())
+				return false;
+			if (addCharTypeEscape(bits, pattern.charAt(pos + 1))) {
+				pos += 2;
+				return true;
+			}
+			final int codePoint = parseEscapedChar();
+			if (codePoint < 0)
+				return false;
+			addCodePoint(bits, codePoint);
+			return true;
+		}
+
+		/**
+		 * @return the code point of the escaped character at the current position or -1 if the escape sequence does
+		 *         not denote a single character
+		 */
+		private int parseEscapedChar() {
+			if (pos + 1 >= pattern.length())
+				return -1;
+			final char ch = pattern.charAt(pos + 1);
+			pos += 2;
+			return switch (ch) {
+				case 't' -> '\t';
+				case 'n' -> '\n';
+				case 'r' -> '\r';
+				case 'f' -> '\f';
+				case 'v' -> 0x0B;
+				case 'a' -> 0x07;
+				case 'e' -> 0x1B;
+				case 'x' -> parseHex(2);
+				case 'u' -> parseHex(4);
+				default -> ch < 0x80 && !Character.isLetterOrDigit(ch) ? ch : -1;
+			};
+		}
+
+		private int parseHex(final int digits) {
+			if (pos + digits > pattern.length())
+				return -1;
+			int value = 0;
+			for (int i = 0; i < digits; i++) {
+				final int digit = Character.digit(pattern.charAt(pos++), 16);
+				if (digit < 0)
+					return -1;
+				value = value * 16 + digit;
+			}
+			// \xHH with a value above 0x7F denotes a raw byte instead of a character
+			return digits == 2 && value >= 0x80 ? -1 : value;
+		}
+
+		private boolean parseCharClass() {
+			pos++; // skip '['
+			final boolean negated = hasCharAt(pos, '^');
+			if (negated) {
+				pos++;
+			}
+
+			final var classBits = new long[4];
+			boolean isFirst = true;
+			while (pos < pattern.length()) {
+				final char ch = pattern.charAt(pos);
+				if (ch == ']' && !isFirst) {
+					pos++;
+					if (negated) {
+						// non-ASCII characters are only approximated by the set of all non-ASCII bytes which cannot be
+						// negated
+						if ((classBits[2] | classBits[3]) != 0)
+							return false;
+						for (int i = 0; i < bits.length; i++) {
+							bits[i] |= ~classBits[i];
+						}
+					} else {
+						for (int i = 0; i < bits.length; i++) {
+							bits[i] |= classBits[i];
+						}
+					}
+					return true;
+				}
+				isFirst = false;
+
+				if (ch == '[' || ch == '&' && hasCharAt(pos + 1, '&'))
+					return false; // nested classes, POSIX brackets and intersections are not supported
+
+				if (ch == '\\' && pos + 1 < pattern.length() && addCharTypeEscape(classBits, pattern.charAt(pos + 1))) {
+					pos += 2;
+					continue;
+				}
+
+				final int low = parseClassChar();
+				if (low < 0)
+					return false;
+				if (hasCharAt(pos, '-') && pos + 1 < pattern.length() && pattern.charAt(pos + 1) != ']') {
+					pos++;
+					final int high = parseClassChar();
+					if (high < low)
+						return false;
+					addRange(classBits, low, high);
+				} else {
+					addRange(classBits, low, low);
+				}
+			}
+			return false;
+		}
+
+		private int parseClassChar() {
+			final char ch = pattern.charAt(pos);
+			if (ch == '[')
+				return -1;
+			if (ch == '\\')
+				return parseEscapedChar();
+			final int codePoint = pattern.codePointAt(pos);
+			pos += Character.charCount(codePoint);
+			return codePoint;
+		}
+
+		/**
+		 * Skips the remainder of the current alternative, i.e. up to the next <code>|</code> or the closing parenthesis
+		 * of the enclosing group.
+		 */
+		private boolean skipToEndOfAlternative() {
+			int depth = 0;
+			while (pos < pattern.length()) {
+				switch (pattern.charAt(pos)) {
+					case '\\':
+						pos += 2;
+						break;
+					case '[':
+						if (!skipCharClass())
+							return false;
+						break;
+					case '(':
+						if (hasCharAt(pos + 1, '?') && !isSupportedGroupPrefix(pos + 2))
+							return false; // inline options, comments, conditionals
+						depth++;
+						pos++;
+						break;
+					case ')':
+						if (depth == 0)
+							return true;
+						depth--;
+						pos++;
+						break;
+					case '|':
+						if (depth == 0)
+							return true;
+						pos++;
+						break;
+					default:
+						pos++;
+				}
+			}
+			return depth == 0;
+		}
+
+		private boolean isSupportedGroupPrefix(final int index) {
+			if (index >= pattern.length())
+				return false;
+			return switch (pattern.charAt(index)) {
+				case ':', '>', '=', '!' -> true;
+				case '<' -> index + 1 < pattern.length() && (pattern.charAt(index + 1) == '='
+						|| pattern.charAt(index + 1) == '!' || Character.isLetter(pattern.charAt(index + 1)));
+				default -> false;
+			};
+		}
+
+		private boolean skipCharClass() {
+			pos++; // skip '['
+			if (hasCharAt(pos, '^')) {
+				pos++;
+			}
+			if (hasCharAt(pos, ']')) {
+				pos++;
+			}
+			while (pos < pattern.length()) {
+				switch (pattern.charAt(pos)) {
+					case '\\':
+						pos += 2;
+						break;
+					case '[':
+						if (!skipCharClass())
+							return false;
+						break;
+					case ']':
+						pos++;
+						return true;
+					default:
+						pos++;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the bytes of the character type denoted by the given escape character.
+	 *
+	 * @return <code>false</code> if the escape character does not denote a supported character type
+	 */
+	private static boolean addCharTypeEscape(final long[] bits, final char escapeChar) {
+		switch (escapeChar) {
+			case 'd':
+				addRange(bits, '0', '9');
+				break;
+			case 'w':
+				addRange(bits, '0', '9');
+				addRange(bits, 'A', 'Z');
+				addRange(bits, 'a', 'z');
+				addRange(bits, '_', '_');
+				break;
+			case 's':
+				addRange(bits, '\t', '\r');
+				addRange(bits, ' ', ' ');
+				break;
+			default:
+				return false;
+		}
+		// Unicode digits, word and space characters
+		addRange(bits, 0x80, 0x80);
+		return true;
+	}
+
+	private static void addCodePoint(final long[] bits, final int codePoint) {
+		final int firstByte;
+		if (codePoint < 0x80) {
+			firstByte = codePoint;
+		} else if (codePoint < 0x800) {
+			firstByte = 0xC0 | codePoint >> 6;
+		} else if (codePoint < 0x10000) {
+			firstByte = 0xE0 | codePoint >> 12;
+		} else {
+			firstByte = 0xF0 | codePoint >> 18;
+		}
+		bits[firstByte >> 6] |= 1L << firstByte;
+	}
+
+	/**
+	 * Adds the first bytes of the given range of code points. Non-ASCII code points are approximated by the set of all
+	 * non-ASCII bytes.
+	 */
+	private static void addRange(final long[] bits, final int low, final int high) {
+		for (int c = low; c <= Math.min(high, 0x7F); c++) {
+			bits[c >> 6] |= 1L << c;
+		}
+		if (high >= 0x80) {
+			bits[2] = -1L;
+			bits[3] = -1L;
+		}
+	}
+}
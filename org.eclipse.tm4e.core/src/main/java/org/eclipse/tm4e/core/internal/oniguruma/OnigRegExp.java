@@ -34,6 +34,9 @@
 import org.joni.exception.SyntaxException;
 
 /**
+ * Compiled regular expression. Instances are shared by all scanners via {@link OnigRegExpCache} and thread-safe, the
+ * only mutable state being the quarantine flag set once a search on the expression exceeded the time limit.
+ *
  * @see <a href="https://github.com/atom/node-oniguruma/blob/master/src/onig-reg-exp.cc">
  *      github.com/atom/node-oniguruma/blob/master/src/onig-reg-exp.cc</a>
  */
@@ -45,20 +48,25 @@ final class OnigRegExp {
 	 */
 	private static final WarnCallback LOGGER_WARN_CALLBACK = message -> LOGGER.log(Level.WARNING, message);
 
-	@Nullable
-	private OnigString lastSearchString;
-
-	private int lastSearchPosition = -1;
-
-	@Nullable
-	private OnigResult lastSearchResult;
+	private final String source;
 
 	private final Regex regex;
 
 	private final boolean hasGAnchor;
 
+	@Nullable
+	private final OnigFirstByteSet firstByteSet;
+
+	/**
+	 * Set once a single search exceeded the time limit of the searched string. From then on the pattern is treated as
+	 * never matching, so that it cannot block tokenization again.
+	 */
+	private volatile boolean quarantined;
+
 	OnigRegExp(final String source) {
+		this.source = source;
 		hasGAnchor = source.contains("\\G");
+		firstByteSet = OnigFirstByteSet.of(source);
 		final byte[] pattern = source.getBytes(StandardCharsets.UTF_8);
 		try {
 			regex = new Regex(pattern, 0, pattern.length, Option.CAPTURE_GROUP, UTF8Encoding.INSTANCE, Syntax.DEFAULT,
@@ -70,32 +78,59 @@ final class OnigRegExp {
 
 	@Nullable
 	OnigResult search(final OnigString str, final int startPosition) {
-		if (hasGAnchor) {
-			// Should not use caching, because the regular expression
-			// targets the current search position (\G)
-			return search(str.bytesUTF8, startPosition, str.bytesCount);
-		}
+		final var firstByteSet = this.firstByteSet;
+		if (firstByteSet != null && !firstByteSet.canMatch(str, startPosition) || quarantined)
+			return null;
 
-		final var lastSearchResult0 = this.lastSearchResult;
-		if (lastSearchString == str
-				&& lastSearchPosition <= startPosition
-				&& (lastSearchResult0 == null || lastSearchResult0.locationAt(0) >= startPosition)) {
-			return lastSearchResult0;
-		}
+		// the memo is shared by all regexes searching the same string, see OnigSearchMemo
+		final var memo = str.getSearchMemo();
+		final var lastSearch = memo.get(source);
+		if (lastSearch != null && lastSearch.answers(startPosition, hasGAnchor))
+			return lastSearch.result();
 
-		lastSearchString = str;
-		lastSearchPosition = startPosition;
-		lastSearchResult = search(str.bytesUTF8, startPosition, str.bytesCount);
-		return lastSearchResult;
+		final var result = OnigRegExpProfiler.isEnabled()
+				? executeProfiled(str, startPosition)
+				: execute(str, startPosition);
+		memo.put(source, startPosition, result);
+		return result;
 	}
 
 	@Nullable
-	private OnigResult search(final byte[] data, final int startPosition, final int end) {
-		final Matcher matcher = regex.matcher(data);
-		final int status = matcher.search(startPosition, end, Option.DEFAULT);
+	private OnigResult executeProfiled(final OnigString str, final int startPosition) {
+		final long start = System.nanoTime();
+		OnigResult result = null;
+		try {
+			result = execute(str, startPosition);
+			return result;
+		} finally {
+			// also records searches interrupted by the time limit, which are the slowest ones
+			OnigRegExpProfiler.record(source, System.nanoTime() - start, result != null);
+		}
+	}
+
+	@Nullable
+	private OnigResult execute(final OnigString str, final int startPosition) {
+		final Matcher matcher = regex.matcher(str.bytesUTF8, 0, str.bytesCount);
+		final int status;
+		final var timeLimit = str.getTimeLimit();
+		if (timeLimit == null) {
+			status = matcher.search(startPosition, str.bytesCount, Option.DEFAULT);
+		} else {
+			timeLimit.beginSearch(matcher);
+			status = matcher.search(startPosition, str.bytesCount, Option.DEFAULT);
+			try {
+				timeLimit.endSearch(matcher, status);
+			} catch (final OnigSearchTimeoutException ex) {
+				if (ex.isLongRunningSearch && !quarantined) {
+					quarantined = true;
+					LOGGER.log(Level.WARNING, "Disabled regex pattern \"" + source + "\" which exceeded the time limit");
+				}
+				throw ex;
+			}
+		}
 		if (status != Matcher.FAILED) {
 			final Region region = matcher.getEagerRegion();
-			return new OnigResult(region, -1);
+			return new OnigResult(region);
 		}
 		return null;
 	}
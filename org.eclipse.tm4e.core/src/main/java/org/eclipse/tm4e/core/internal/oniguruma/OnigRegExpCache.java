@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import org.eclipse.tm4e.core.TMException;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Process-wide cache of compiled regular expressions keyed by pattern source.
+ * <p>
+ * Compiled regular expressions are immutable and thread-safe, so the scanners of all grammars share one instance per
+ * distinct pattern. This avoids compiling the patterns of embedded grammars, e.g. CSS or JavaScript inside HTML,
+ * again for every grammar embedding them, as well as patterns shared by multiple rules of the same grammar.
+ * <p>
+ * The compiled regular expressions are weakly referenced and become eligible for garbage collection once no scanner
+ * uses them anymore.
+ */
+public final class OnigRegExpCache {
+
+	private static final LoadingCache<String, OnigRegExp> REG_EXPS = CacheBuilder.newBuilder()
+			.weakValues()
+			.recordStats()
+			.build(new CacheLoader<String, OnigRegExp>() {
+				@Override
+				public OnigRegExp load(final String source) {
+					return new OnigRegExp(source);
+				}
+			});
+
+	/**
+	 * @throws TMException if the pattern cannot be compiled
+	 */
+	static OnigRegExp get(final String source) {
+		try {
+			return REG_EXPS.getUnchecked(source);
+		} catch (final UncheckedExecutionException ex) {
+			if (ex.getCause() instanceof final TMException tmEx)
+				throw tmEx;
+			throw ex;
+		}
+	}
+
+	/**
+	 * @return the hit and miss statistics of the cache since the start of the process
+	 */
+	public static CacheStats getStats() {
+		return REG_EXPS.stats();
+	}
+
+	/**
+	 * @return the approximate number of cached regular expressions
+	 */
+	public static long size() {
+		return REG_EXPS.size();
+	}
+
+	private OnigRegExpCache() {
+	}
+}
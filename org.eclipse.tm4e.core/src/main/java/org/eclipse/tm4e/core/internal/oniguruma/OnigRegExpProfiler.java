@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Opt-in profiler recording the executions of the regex engine per pattern.
+ * <p>
+ * Searches answered by the per-line memo or skipped by the first byte prefilter do not invoke the regex engine and are
+ * not recorded. Searches interrupted by the time limit of the searched string are recorded as not matching. Since
+ * compiled regular expressions are shared, the statistics of a pattern cover all grammars using it.
+ * <p>
+ * Profiling is disabled by default. While enabled, each regex execution is timed with {@link System#nanoTime()}.
+ */
+public final class OnigRegExpProfiler {
+
+	/**
+	 * Snapshot of the statistics of a pattern.
+	 *
+	 * @param calls number of executions of the regex engine
+	 * @param matches number of executions that found a match
+	 * @param totalNanos total execution time
+	 * @param maxNanos worst-case execution time
+	 */
+	@NonNullByDefault({})
+	public record PatternStats(String pattern, long calls, long matches, long totalNanos, long maxNanos) {
+	}
+
+	private static final class Counters {
+		final LongAdder calls = new LongAdder();
+		final LongAdder matches = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+	}
+
+	private static final ConcurrentMap<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+	private static volatile boolean enabled;
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(final boolean enabled) {
+		OnigRegExpProfiler.enabled = enabled;
+	}
+
+	/**
+	 * Discards all recorded statistics.
+	 */
+	public static void reset() {
+		COUNTERS.clear();
+	}
+
+	static void record(final String pattern, final long nanos, final boolean matched) {
+		final var counters = COUNTERS.computeIfAbsent(pattern, p -> new Counters());
+		counters.calls.increment();
+		if (matched) {
+			counters.matches.increment();
+		}
+		counters.totalNanos.add(nanos);
+		counters.maxNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * @return the statistics of all patterns executed since profiling was enabled or last reset, sorted by total
+	 *         execution time in descending order
+	 */
+	public static List<PatternStats> getStats() {
+		return COUNTERS.entrySet().stream()
+				.map(e -> {
+					final var counters = e.getValue();
+					return new PatternStats(e.getKey(), counters.calls.sum(), counters.matches.sum(),
+							counters.totalNanos.sum(), counters.maxNanos.get());
+				})
+				.sorted(Comparator.comparingLong(PatternStats::totalNanos).reversed())
+				.toList();
+	}
+
+	private OnigRegExpProfiler() {
+	}
+}
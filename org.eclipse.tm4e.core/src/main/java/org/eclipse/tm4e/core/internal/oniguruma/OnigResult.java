@@ -24,20 +24,10 @@
  */
 final class OnigResult {
 
-	private int indexInScanner;
 	private final Region region;
 
-	OnigResult(final Region region, final int indexInScanner) {
+	OnigResult(final Region region) {
 		this.region = region;
-		this.indexInScanner = indexInScanner;
-	}
-
-	int getIndex() {
-		return indexInScanner;
-	}
-
-	void setIndex(final int index) {
-		indexInScanner = index;
 	}
 
 	int locationAt(final int index) {
@@ -34,10 +34,6 @@ public OnigScanner(final List<String> regexps) {
 
 	@Nullable
 	public OnigScannerMatch findNextMatch(final OnigString source, final int startPosition) {
-		final OnigResult bestResult = searcher.search(source, startPosition);
-		if (bestResult != null) {
-			return new OnigScannerMatch(bestResult, source);
-		}
-		return null;
+		return searcher.search(source, startPosition);
 	}
 }
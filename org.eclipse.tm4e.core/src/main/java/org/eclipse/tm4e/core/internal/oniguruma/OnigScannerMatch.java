@@ -29,8 +29,8 @@ public final class OnigScannerMatch {
 	public final int index;
 	private final OnigCaptureIndex[] captureIndices;
 
-	OnigScannerMatch(final OnigResult result, final OnigString source) {
-		this.index = result.getIndex();
+	OnigScannerMatch(final OnigResult result, final int index, final OnigString source) {
+		this.index = index;
 		this.captureIndices = captureIndicesOfMatch(result, source);
 	}
 
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Memo of the regex searches performed on a single {@link OnigString}.
+ * <p>
+ * While a line is tokenized, rules are pushed and popped and the scanners of the different rules often contain the same
+ * patterns, e.g. the ones of included repository rules. The memo is keyed by the pattern source, so that a search
+ * performed by the scanner of one rule is reused by the scanners of all other rules that contain the same pattern.
+ * <p>
+ * For each pattern only the last search is recorded. A search from position <code>p</code> that found a match at
+ * location <code>l</code> also answers all searches from positions in <code>[p, l]</code>, and a search that found no
+ * match answers all searches from positions after <code>p</code>. Searches of patterns containing a <code>\G</code>
+ * anchor depend on the exact search position and are only answered for that position.
+ * <p>
+ * Instances are not thread-safe, they are confined to the thread tokenizing the line.
+ */
+final class OnigSearchMemo {
+
+	record Search(int position, @Nullable OnigResult result) {
+
+		/**
+		 * @return <code>true</code> if this search yields the result of searching from the given position
+		 */
+		boolean answers(final int position, final boolean hasGAnchor) {
+			if (hasGAnchor)
+				return this.position == position;
+			if (this.position > position)
+				return false;
+			final var result = this.result;
+			return result == null || result.locationAt(0) >= position;
+		}
+	}
+
+	private final Map<String, Search> searches = new HashMap<>();
+
+	/**
+	 * @return the last search of the given pattern or <code>null</code> if the pattern was not yet searched
+	 */
+	@Nullable
+	Search get(final String pattern) {
+		return searches.get(pattern);
+	}
+
+	void put(final String pattern, final int position, final @Nullable OnigResult result) {
+		searches.put(pattern, new Search(position, result));
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+/**
+ * Thrown by {@link OnigScanner#findNextMatch(OnigString, int)} if the time limit of the searched string expired, see
+ * {@link OnigString#startTimeLimit(long)}.
+ */
+public final class OnigSearchTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/** <code>true</code> if a single search exceeded the time limit */
+	final boolean isLongRunningSearch;
+
+	OnigSearchTimeoutException(final boolean isLongRunningSearch) {
+		super("Time limit of regex search expired", null, false, false);
+		this.isLongRunningSearch = isLongRunningSearch;
+	}
+}
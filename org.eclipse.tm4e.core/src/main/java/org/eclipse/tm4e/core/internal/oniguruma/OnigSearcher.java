@@ -29,15 +29,16 @@ final class OnigSearcher {
 	private final List<OnigRegExp> regExps;
 
 	OnigSearcher(final List<String> regExps) {
-		this.regExps = regExps.stream().map(OnigRegExp::new).toList();
+		this.regExps = regExps.stream().map(OnigRegExpCache::get).toList();
 	}
 
 	@Nullable
-	OnigResult search(final OnigString source, final int charOffset) {
+	OnigScannerMatch search(final OnigString source, final int charOffset) {
 		final int byteOffset = source.getByteIndexOfChar(charOffset);
 
 		int bestLocation = 0;
 		OnigResult bestResult = null;
+		int bestIndex = -1;
 		int index = 0;
 
 		for (final OnigRegExp regExp : regExps) {
@@ -48,7 +49,7 @@ OnigResult search(final OnigString source, final int charOffset) {
 				if (bestResult == null || location < bestLocation) {
 					bestLocation = location;
 					bestResult = result;
-					bestResult.setIndex(index);
+					bestIndex = index;
 				}
 
 				if (location == byteOffset) {
@@ -57,6 +58,6 @@ OnigResult search(final OnigString source, final int charOffset) {
 			}
 			index++;
 		}
-		return bestResult;
+		return bestResult == null ? null : new OnigScannerMatch(bestResult, bestIndex, source);
 	}
 }
@@ -22,7 +22,6 @@
 import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.Nullable;
-import org.jcodings.specific.UTF8Encoding;
 
 /**
  * Oniguruma string.
@@ -39,18 +38,33 @@ public abstract class OnigString {
 	static final class MultiByteString extends OnigString {
 
 		/**
-		 * For each byte holds the index of the char to which the byte belongs.
-		 * E.g. in case of <code>byteToCharOffsets[100] == 60 && byteToCharOffsets[101] == 60</code>,
-		 * the bytes at indexes 100 and 101 both belong to the same multi-byte character at index 60.
+		 * For each block of {@value #CHECKPOINT_INTERVAL} bytes holds the index of the char to which the first byte of
+		 * the block belongs. Offsets within a block are computed by decoding the bytes from the start of that char.
 		 */
-		private int @Nullable [] byteToCharOffsets;
+		private final int[] checkpoints;
+		private final int checkpointsCount;
 		private final int lastCharIndex;
 
-		private MultiByteString(final String str, final byte[] bytesUTF8) {
-			super(str, bytesUTF8);
+		private MultiByteString(final String str, final byte[] bytesUTF8, final int bytesCount, final int[] checkpoints,
+				final @Nullable ReusableBuffer buffer) {
+			super(str, str.length(), bytesUTF8, bytesCount, buffer);
+			this.checkpoints = checkpoints;
+			checkpointsCount = computeCheckpoints(bytesUTF8, bytesCount, checkpoints);
 			lastCharIndex = str.length() - 1;
 		}
 
+		private MultiByteString(final MultiByteString str, final int charsCount, final int bytesCount) {
+			super(str.content, charsCount, str.bytesUTF8, bytesCount, null);
+			checkpoints = str.checkpoints;
+			checkpointsCount = getCheckpointsLength(bytesCount);
+			lastCharIndex = charsCount - 1;
+		}
+
+		@Override
+		OnigString createPrefix(final int charsCount) {
+			return new MultiByteString(this, charsCount, getByteIndexOfChar(charsCount));
+		}
+
 		@Override
 		int getByteIndexOfChar(final int charIndex) {
 			if (charIndex == lastCharIndex + 1) {
@@ -65,32 +79,31 @@ int getByteIndexOfChar(final int charIndex) {
 				return 0;
 			}
 
-			final int[] byteToCharOffsets = getByteToCharOffsets();
-			int byteIndex = Arrays.binarySearch(byteToCharOffsets, charIndex);
-			while (byteIndex > 0 && byteToCharOffsets[byteIndex - 1] == charIndex) {
-				byteIndex--;
+			// find the last block starting within or before the char
+			int low = 0;
+			int high = checkpointsCount - 1;
+			while (low < high) {
+				final int mid = (low + high + 1) >>> 1;
+				if (checkpoints[mid] <= charIndex) {
+					low = mid;
+				} else {
+					high = mid - 1;
+				}
 			}
-			return byteIndex;
-		}
 
-		private int[] getByteToCharOffsets() {
-			int[] offsets = byteToCharOffsets;
-			if (offsets == null) {
-				offsets = new int[bytesCount];
-				int charIndex = 0;
-				int byteIndex = 0;
-				final int maxByteIndex = bytesCount - 1;
-				while (byteIndex <= maxByteIndex) {
-					final int charLenInBytes = UTF8Encoding.INSTANCE.length(bytesUTF8, byteIndex, bytesCount);
-					// same as "Arrays.fill(offsets, byteIndex, byteIndex + charLenInBytes, charIndex)" but faster
-					for (final int l = byteIndex + charLenInBytes; byteIndex < l; byteIndex++) {
-						offsets[byteIndex] = charIndex;
-					}
-					charIndex++;
+			int byteIndex = getCharStartOfBlock(low);
+			int currentCharIndex = checkpoints[low];
+			while (currentCharIndex < charIndex) {
+				final int charLenInBytes = getCharLength(bytesUTF8[byteIndex]);
+				final int charCount = charLenInBytes == 4 ? 2 : 1;
+				if (currentCharIndex + charCount > charIndex) {
+					// low surrogate, which has no byte of its own
+					break;
 				}
-				byteToCharOffsets = offsets;
+				currentCharIndex += charCount;
+				byteIndex += charLenInBytes;
 			}
-			return offsets;
+			return byteIndex;
 		}
 
 		@Override
@@ -107,7 +120,27 @@ int getCharIndexOfByte(final int byteIndex) {
 				return 0;
 			}
 
-			return getByteToCharOffsets()[byteIndex];
+			final int block = byteIndex / CHECKPOINT_INTERVAL;
+			int currentByteIndex = getCharStartOfBlock(block);
+			int charIndex = checkpoints[block];
+			while (true) {
+				final int charLenInBytes = getCharLength(bytesUTF8[currentByteIndex]);
+				if (currentByteIndex + charLenInBytes > byteIndex)
+					return charIndex;
+				charIndex += charLenInBytes == 4 ? 2 : 1;
+				currentByteIndex += charLenInBytes;
+			}
+		}
+
+		/**
+		 * @return the index of the first byte of the char to which the first byte of the given block belongs
+		 */
+		private int getCharStartOfBlock(final int block) {
+			int byteIndex = block * CHECKPOINT_INTERVAL;
+			while ((bytesUTF8[byteIndex] & 0xC0) == 0x80) {
+				byteIndex--;
+			}
+			return byteIndex;
 		}
 	}
 
@@ -116,8 +149,15 @@ int getCharIndexOfByte(final int byteIndex) {
 	 */
 	static final class SingleByteString extends OnigString {
 
-		private SingleByteString(final String str, final byte[] bytesUTF8) {
-			super(str, bytesUTF8);
+		private SingleByteString(final String str, final byte[] bytesUTF8, final int bytesCount,
+				final @Nullable ReusableBuffer buffer) {
+			super(str, bytesCount, bytesUTF8, bytesCount, buffer);
+		}
+
+		@Override
+		OnigString createPrefix(final int charsCount) {
+			final int bytesCount = getByteIndexOfChar(charsCount);
+			return new SingleByteString(content, bytesUTF8, bytesCount, null);
 		}
 
 		@Override
@@ -147,23 +187,187 @@ int getCharIndexOfByte(final int byteIndex) {
 		}
 	}
 
+	/**
+	 * Byte and checkpoint arrays reused by the strings created on a thread with {@link OnigString#ofReusableBuffer}.
+	 */
+	private static final class ReusableBuffer {
+		byte[] bytes = new byte[256];
+		int[] checkpoints = new int[getCheckpointsLength(256)];
+		boolean inUse;
+	}
+
+	private static final int CHECKPOINT_INTERVAL = 64;
+
+	/**
+	 * Strings requiring larger buffers are encoded into fresh arrays, so that a single long line does not permanently
+	 * increase the memory retained by the thread.
+	 */
+	private static final int MAX_REUSABLE_BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<ReusableBuffer> REUSABLE_BUFFER = ThreadLocal.withInitial(ReusableBuffer::new);
+
 	public static OnigString of(final String str) {
 		final byte[] bytesUtf8 = str.getBytes(StandardCharsets.UTF_8);
 		if (bytesUtf8.length == str.length()) {
-			return new SingleByteString(str, bytesUtf8);
+			return new SingleByteString(str, bytesUtf8, bytesUtf8.length, null);
 		}
-		return new MultiByteString(str, bytesUtf8);
+		return new MultiByteString(str, bytesUtf8, bytesUtf8.length, new int[getCheckpointsLength(bytesUtf8.length)],
+				null);
 	}
 
+	/**
+	 * Creates a string whose UTF-8 bytes and offset checkpoints are encoded into buffers that are reused by the
+	 * current thread, which avoids allocating these arrays for every tokenized line.
+	 * <p>
+	 * The returned string must be {@link #release() released} once its searches are finished and must not be used
+	 * afterwards. If the buffers of the thread are still in use by another string, fresh arrays are allocated.
+	 */
+	public static OnigString ofReusableBuffer(final String str) {
+		final int maxBytesCount = str.length() * 3;
+		if (maxBytesCount > MAX_REUSABLE_BUFFER_SIZE)
+			return of(str);
+
+		final var buffer = REUSABLE_BUFFER.get();
+		if (buffer.inUse)
+			return of(str);
+
+		if (buffer.bytes.length < maxBytesCount) {
+			buffer.bytes = new byte[Math.min(Math.max(maxBytesCount, buffer.bytes.length * 2), MAX_REUSABLE_BUFFER_SIZE)];
+			buffer.checkpoints = new int[getCheckpointsLength(buffer.bytes.length)];
+		}
+		final int bytesCount = encodeUTF8(str, buffer.bytes);
+		buffer.inUse = true;
+		if (bytesCount == str.length()) {
+			return new SingleByteString(str, buffer.bytes, bytesCount, buffer);
+		}
+		return new MultiByteString(str, buffer.bytes, bytesCount, buffer.checkpoints, buffer);
+	}
+
+	/**
+	 * Encodes the given string like {@link String#getBytes(java.nio.charset.Charset)} with
+	 * {@link StandardCharsets#UTF_8}, i.e. unpaired surrogates are replaced by <code>'?'</code>.
+	 *
+	 * @param bytes an array of at least three bytes per char
+	 *
+	 * @return the number of bytes written
+	 */
+	private static int encodeUTF8(final String str, final byte[] bytes) {
+		final int length = str.length();
+		int byteIndex = 0;
+		for (int charIndex = 0; charIndex < length; charIndex++) {
+			final char ch = str.charAt(charIndex);
+			if (ch < 0x80) {
+				bytes[byteIndex++] = (byte) ch;
+			} else if (ch < 0x800) {
+				bytes[byteIndex++] = (byte) (0xC0 | ch >> 6);
+				bytes[byteIndex++] = (byte) (0x80 | ch & 0x3F);
+			} else if (Character.isSurrogate(ch)) {
+				final char low;
+				if (Character.isHighSurrogate(ch) && charIndex + 1 < length
+						&& Character.isLowSurrogate(low = str.charAt(charIndex + 1))) {
+					final int codePoint = Character.toCodePoint(ch, low);
+					bytes[byteIndex++] = (byte) (0xF0 | codePoint >> 18);
+					bytes[byteIndex++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+					bytes[byteIndex++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+					bytes[byteIndex++] = (byte) (0x80 | codePoint & 0x3F);
+					charIndex++;
+				} else {
+					bytes[byteIndex++] = '?';
+				}
+			} else {
+				bytes[byteIndex++] = (byte) (0xE0 | ch >> 12);
+				bytes[byteIndex++] = (byte) (0x80 | ch >> 6 & 0x3F);
+				bytes[byteIndex++] = (byte) (0x80 | ch & 0x3F);
+			}
+		}
+		return byteIndex;
+	}
+
+	private static int getCheckpointsLength(final int bytesCount) {
+		return (bytesCount + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL;
+	}
+
+	/**
+	 * @return the number of checkpoints written
+	 */
+	private static int computeCheckpoints(final byte[] bytesUTF8, final int bytesCount, final int[] checkpoints) {
+		int block = 0;
+		int charIndex = 0;
+		int byteIndex = 0;
+		while (byteIndex < bytesCount) {
+			final int charLenInBytes = getCharLength(bytesUTF8[byteIndex]);
+			byteIndex += charLenInBytes;
+			// record the char for all blocks whose first byte belongs to it
+			while (block * CHECKPOINT_INTERVAL < byteIndex) {
+				checkpoints[block++] = charIndex;
+			}
+			// a 4-byte character is represented by a surrogate pair in Java
+			charIndex += charLenInBytes == 4 ? 2 : 1;
+		}
+		return block;
+	}
+
+	/**
+	 * @return the number of bytes of the UTF-8 encoded character starting with the given byte
+	 */
+	private static int getCharLength(final byte leadByte) {
+		if (leadByte >= 0)
+			return 1;
+		if ((leadByte & 0xE0) == 0xC0)
+			return 2;
+		if ((leadByte & 0xF0) == 0xE0)
+			return 3;
+		return 4;
+	}
+
+	/**
+	 * The text of the string. Only the first {@link #charsCount} chars are searched, which is less than the length of
+	 * the text for a {@link #prefix(int) prefix}.
+	 */
 	public final String content;
 
+	public final int charsCount;
+
 	public final int bytesCount;
+
+	/**
+	 * The UTF-8 encoded content. May be longer than {@link #bytesCount} if the array is a reused buffer.
+	 */
 	final byte[] bytesUTF8;
 
-	private OnigString(final String content, final byte[] bytesUTF8) {
+	/**
+	 * For each byte value holds the index of its last occurrence or -1 if it does not occur.
+	 */
+	private int @Nullable [] lastByteIndexes;
+
+	@Nullable
+	private OnigSearchMemo searchMemo;
+
+	@Nullable
+	private OnigTimeLimit timeLimit;
+
+	@Nullable
+	private ReusableBuffer buffer;
+
+	private OnigString(final String content, final int charsCount, final byte[] bytesUTF8, final int bytesCount,
+			final @Nullable ReusableBuffer buffer) {
 		this.content = content;
+		this.charsCount = charsCount;
 		this.bytesUTF8 = bytesUTF8;
-		bytesCount = bytesUTF8.length;
+		this.bytesCount = bytesCount;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns the buffers of a string created with {@link #ofReusableBuffer(String)} to the current thread. Has no
+	 * effect for other strings.
+	 */
+	public void release() {
+		final var buffer = this.buffer;
+		if (buffer != null) {
+			buffer.inUse = false;
+			this.buffer = null;
+		}
 	}
 
 	protected final String throwOutOfBoundsException(final String indexName, final int index, final int minIndex, final int maxIndex) {
@@ -173,10 +377,78 @@ protected final String throwOutOfBoundsException(final String indexName, final i
 
 	abstract int getByteIndexOfChar(int charIndex);
 
+	/**
+	 * Returns a string limited to the first chars of this string, e.g. to tokenize a capture without the text following
+	 * it. The returned string shares the bytes of this string, so it must not be used after this string is
+	 * {@link #release() released}. It is searched as if its text ended after the given number of chars, i.e. end
+	 * anchors match there and lookaheads do not see beyond. The searches on the returned string are subject to the
+	 * {@link #startTimeLimit(long) time limit} of this string.
+	 *
+	 * @param charsCount the number of chars to retain, at most {@link #charsCount}
+	 */
+	public final OnigString prefix(final int charsCount) {
+		final var prefix = createPrefix(charsCount);
+		// the indexes of bytes after the prefix only cause the first byte prefilter to not skip a search
+		prefix.lastByteIndexes = getLastByteIndexes();
+		// searches on the prefix count towards the time limit of this string
+		prefix.timeLimit = timeLimit;
+		return prefix;
+	}
+
+	abstract OnigString createPrefix(int charsCount);
+
+	/**
+	 * @return an array of length 256 holding for each byte value the index of its last occurrence in this string or -1
+	 *         if it does not occur. For a {@link #prefix(int) prefix}, the indexes may exceed {@link #bytesCount}.
+	 */
+	final int[] getLastByteIndexes() {
+		int[] indexes = lastByteIndexes;
+		if (indexes == null) {
+			indexes = new int[256];
+			Arrays.fill(indexes, -1);
+			for (int i = 0; i < bytesCount; i++) {
+				indexes[bytesUTF8[i] & 0xFF] = i;
+			}
+			lastByteIndexes = indexes;
+		}
+		return indexes;
+	}
+
 	abstract int getCharIndexOfByte(int byteIndex);
 
+	/**
+	 * Limits the total time of the regex searches on this string until {@link #cancelTimeLimit()} is called. Once the
+	 * time limit expires, the running search is interrupted and all searches fail with an
+	 * {@link OnigSearchTimeoutException}.
+	 */
+	public void startTimeLimit(final long timeLimitMillis) {
+		cancelTimeLimit();
+		timeLimit = new OnigTimeLimit(timeLimitMillis);
+	}
+
+	public void cancelTimeLimit() {
+		final var timeLimit = this.timeLimit;
+		if (timeLimit != null) {
+			timeLimit.cancel();
+			this.timeLimit = null;
+		}
+	}
+
+	@Nullable
+	final OnigTimeLimit getTimeLimit() {
+		return timeLimit;
+	}
+
+	final OnigSearchMemo getSearchMemo() {
+		var memo = searchMemo;
+		if (memo == null) {
+			memo = searchMemo = new OnigSearchMemo();
+		}
+		return memo;
+	}
+
 	@Override
 	public String toString() {
-		return getClass().getSimpleName() + "[string=\"" + content + "\"]";
+		return getClass().getSimpleName() + "[string=\"" + content.substring(0, charsCount) + "\"]";
 	}
 }
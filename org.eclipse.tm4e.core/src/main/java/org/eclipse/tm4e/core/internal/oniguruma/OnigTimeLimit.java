@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.joni.Matcher;
+
+/**
+ * Time limit of the regex searches performed on an {@link OnigString}.
+ * <p>
+ * The regex engine is only stopped if it is interrupted from another thread. A timer thread therefore interrupts the
+ * search running when the time limit expires, causing it to fail with an {@link OnigSearchTimeoutException}, as do all
+ * searches started afterwards.
+ * <p>
+ * Searches are interrupted no earlier than {@value #MIN_INTERRUPT_DELAY_MILLIS} ms, so that tight time limits, which
+ * are already enforced by the tokenizer between searches, do not interrupt regular searches that are merely slow on a
+ * cold JVM, and a line always makes some progress.
+ * <p>
+ * To tell a single pathological search apart from many regular searches adding up to the time limit, the timer first
+ * fires after half of the interrupt delay and remembers the running search. If the same search is still running when
+ * the interrupt delay expires, its pattern is quarantined.
+ */
+final class OnigTimeLimit {
+
+	private static final long MIN_INTERRUPT_DELAY_MILLIS = 100;
+
+	private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+		final var thread = new Thread(runnable, "tm4e regex time limit");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		TIMER.setRemoveOnCancelPolicy(true);
+		TIMER.setKeepAliveTime(1, TimeUnit.SECONDS);
+		TIMER.allowCoreThreadTimeOut(true);
+	}
+
+	@Nullable
+	private volatile Matcher runningSearch;
+
+	/** the search running after half of the interrupt delay */
+	@Nullable
+	private volatile Matcher searchAtHalfTime;
+
+	/** the interrupted search, if it was already running after half of the interrupt delay */
+	@Nullable
+	private volatile Matcher longRunningSearch;
+
+	private volatile boolean expired;
+
+	private volatile boolean cancelled;
+
+	private volatile ScheduledFuture<?> timer;
+
+	OnigTimeLimit(final long timeLimitMillis) {
+		final long halfDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(timeLimitMillis, MIN_INTERRUPT_DELAY_MILLIS)) / 2;
+		timer = TIMER.schedule(() -> {
+			searchAtHalfTime = runningSearch;
+			if (!cancelled) {
+				timer = TIMER.schedule(this::expire, halfDelayNanos, TimeUnit.NANOSECONDS);
+			}
+		}, halfDelayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void expire() {
+		expired = true;
+		final var search = runningSearch;
+		if (search != null) {
+			if (search == searchAtHalfTime) {
+				longRunningSearch = search;
+			}
+			search.interrupt();
+		}
+	}
+
+	/**
+	 * Cancels the timer. Since the searches of the string are finished, a timer task that already started has no
+	 * effect.
+	 */
+	void cancel() {
+		cancelled = true;
+		timer.cancel(false);
+	}
+
+	/**
+	 * @throws OnigSearchTimeoutException if the time limit has expired
+	 */
+	void beginSearch(final Matcher search) {
+		runningSearch = search;
+		if (expired) {
+			runningSearch = null;
+			throw new OnigSearchTimeoutException(false);
+		}
+	}
+
+	/**
+	 * @param status the status returned by the search
+	 *
+	 * @throws OnigSearchTimeoutException if the search was interrupted because the time limit expired
+	 */
+	void endSearch(final Matcher search, final int status) {
+		runningSearch = null;
+		if (status == Matcher.INTERRUPTED)
+			throw new OnigSearchTimeoutException(search == longRunningSearch);
+	}
+}
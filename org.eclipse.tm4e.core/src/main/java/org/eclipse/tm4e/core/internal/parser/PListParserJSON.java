@@ -13,13 +13,63 @@
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.xml.sax.SAXException;
 
+import com.google.common.collect.Iterators;
 import com.google.gson.stream.JsonReader;
 
+/**
+ * Parses TextMate Grammar and Theme files in JSON format.
+ * <p>
+ * The objects are created directly while streaming the JSON tokens, with the same paths passed to the object factory
+ * as by the PList XML parser. Keys are interned, so that the keys of all objects share the same string instances as
+ * the key constants they are looked up with. Like in PList files, <code>null</code> values are ignored. Boolean and
+ * number values are ignored too.
+ */
 public final class PListParserJSON<T> implements PListParser<T> {
 
+	/**
+	 * the keys of the objects enclosing the current value
+	 */
+	private static final class PListPathImpl implements PListPath {
+		final List<String> keys = new ArrayList<>();
+
+		@Override
+		public String get(final int index) {
+			return keys.get(index);
+		}
+
+		@Override
+		public String first() {
+			return keys.get(0);
+		}
+
+		@Override
+		public String last() {
+			return keys.get(keys.size() - 1);
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return Iterators.unmodifiableIterator(keys.iterator());
+		}
+
+		@Override
+		public int size() {
+			return keys.size();
+		}
+
+		@Override
+		public String toString() {
+			return String.join("/", keys);
+		}
+	}
+
 	private final PropertySettable.Factory<PListPath> objectFactory;
 
 	public PListParserJSON(final PropertySettable.Factory<PListPath> objectFactory) {
@@ -27,59 +77,60 @@ public PListParserJSON(final PropertySettable.Factory<PListPath> objectFactory)
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public T parse(final Reader contents) throws IOException, SAXException {
-		final var pList = new PListContentHandler<T>(objectFactory);
 		try (var reader = new JsonReader(contents)) {
-			// reader.setLenient(true);
-			boolean parsing = true;
-			pList.startElement(null, "plist", null, null);
-			while (parsing) {
-				final var nextToken = reader.peek();
-				switch (nextToken) {
-					case BEGIN_ARRAY:
-						pList.startElement(null, "array", null, null);
-						reader.beginArray();
-						break;
-					case END_ARRAY:
-						pList.endElement(null, "array", null);
-						reader.endArray();
-						break;
-					case BEGIN_OBJECT:
-						pList.startElement(null, "dict", null, null);
-						reader.beginObject();
-						break;
-					case END_OBJECT:
-						pList.endElement(null, "dict", null);
-						reader.endObject();
-						break;
-					case NAME:
-						pList.startElement(null, "key", null, null);
-						pList.characters(reader.nextName());
-						pList.endElement(null, "key", null);
-						break;
-					case NULL:
-						reader.nextNull();
-						break;
-					case BOOLEAN:
-						reader.nextBoolean();
-						break;
-					case NUMBER:
-						reader.nextLong();
-						break;
-					case STRING:
-						pList.startElement(null, "string", null, null);
-						pList.characters(reader.nextString());
-						pList.endElement(null, "string", null);
-						break;
-					case END_DOCUMENT:
-						parsing = false;
-						break;
-					default:
-						break;
-				}
+			final var path = new PListPathImpl();
+			return (T) switch (reader.peek()) {
+				case BEGIN_OBJECT -> readObject(reader, path);
+				case BEGIN_ARRAY -> readArray(reader, path);
+				default -> throw new SAXException("Root JSON object or array not found!");
+			};
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readObject(final JsonReader reader, final PListPathImpl path) throws IOException {
+		final var object = (PropertySettable<Object>) objectFactory.create(path);
+		reader.beginObject();
+		while (reader.hasNext()) {
+			final String key = reader.nextName().intern();
+			path.keys.add(key);
+			final var value = readValue(reader, path);
+			if (value != null) {
+				object.setProperty(key, value);
 			}
-			pList.endElement(null, "plist", null);
+			path.keys.remove(path.keys.size() - 1);
+		}
+		reader.endObject();
+		return object;
+	}
+
+	private List<Object> readArray(final JsonReader reader, final PListPathImpl path) throws IOException {
+		final List<Object> array = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			final var value = readValue(reader, path);
+			if (value != null) {
+				array.add(value);
+			}
+		}
+		reader.endArray();
+		return array;
+	}
+
+	@Nullable
+	private Object readValue(final JsonReader reader, final PListPathImpl path) throws IOException {
+		switch (reader.peek()) {
+			case BEGIN_OBJECT:
+				return readObject(reader, path);
+			case BEGIN_ARRAY:
+				return readArray(reader, path);
+			case STRING:
+				return reader.nextString();
+			default:
+				reader.skipValue();
+				return null;
 		}
-		return pList.getResult();
 	}
 }
@@ -36,6 +36,22 @@ public interface IGrammarRepository {
 	@Nullable
 	IRawGrammar lookup(String scopeName);
 
+	/**
+	 * Lookup a raw grammar and load it if it was not loaded yet, see {@link #isLoadingOnDemand()}.
+	 */
+	@Nullable
+	default IRawGrammar load(final String scopeName) {
+		return lookup(scopeName);
+	}
+
+	/**
+	 * @return <code>true</code> if grammars included by other grammars are not loaded together with them but on first
+	 *         use via {@link #load(String)}
+	 */
+	default boolean isLoadingOnDemand() {
+		return false;
+	}
+
 	/**
 	 * Returns the injections for the given grammar
 	 */
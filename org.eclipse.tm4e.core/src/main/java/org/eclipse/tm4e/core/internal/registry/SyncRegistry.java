@@ -16,10 +16,13 @@
  */
 package org.eclipse.tm4e.core.internal.registry;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
+
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
@@ -31,19 +34,35 @@
 import org.eclipse.tm4e.core.internal.theme.Theme;
 
 /**
+ * Thread-safe, since grammars may compile their rules while further grammars are added, and grammars may be looked up
+ * and created concurrently.
+ *
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/registry.ts">
  *      github.com/microsoft/vscode-textmate/blob/main/src/registry.ts</a>
  */
 public final class SyncRegistry implements IGrammarRepository, IThemeProvider {
 
-	private final Map<String, Grammar> _grammars = new HashMap<>();
-	private final Map<String, IRawGrammar> _rawGrammars = new HashMap<>();
-	private final Map<String, Collection<String>> _injectionGrammars = new HashMap<>();
-	private Theme _theme;
+	private final Map<String, Grammar> _grammars = new ConcurrentHashMap<>();
+	private final Map<String, IRawGrammar> _rawGrammars = new ConcurrentHashMap<>();
+	private final Map<String, Collection<String>> _injectionGrammars = new ConcurrentHashMap<>();
+	private volatile Theme _theme;
+
+	@Nullable
+	private final Function<String, @Nullable IRawGrammar> _grammarLoader;
 
 	public SyncRegistry(final Theme theme) {
+		this(theme, null);
+	}
+
+	/**
+	 * @param grammarLoader if not <code>null</code>, grammars included by other grammars are loaded on first use by
+	 *            this function, which is expected to register the loaded grammar via
+	 *            {@link #addGrammar(IRawGrammar, Collection)}
+	 */
+	public SyncRegistry(final Theme theme, @Nullable final Function<String, @Nullable IRawGrammar> grammarLoader) {
 		this._theme = theme;
+		this._grammarLoader = grammarLoader;
 	}
 
 	public void setTheme(final Theme theme) {
@@ -71,6 +90,19 @@ public IRawGrammar lookup(final String scopeName) {
 		return this._rawGrammars.get(scopeName);
 	}
 
+	@Override
+	@Nullable
+	public IRawGrammar load(final String scopeName) {
+		final var grammar = castNullable(this._rawGrammars.get(scopeName));
+		final var grammarLoader = this._grammarLoader;
+		return grammar == null && grammarLoader != null ? grammarLoader.apply(scopeName) : grammar;
+	}
+
+	@Override
+	public boolean isLoadingOnDemand() {
+		return this._grammarLoader != null;
+	}
+
 	@Override
 	@Nullable
 	public Collection<String> injections(final String targetScope) {
@@ -104,21 +136,25 @@ public IGrammar grammarForScopeName(
 			@Nullable final Map<String, Integer> embeddedLanguages,
 			@Nullable final Map<String, Integer> tokenTypes,
 			@Nullable final BalancedBracketSelectors balancedBracketSelectors) {
-		if (!this._grammars.containsKey(scopeName)) {
-			final var rawGrammar = lookup(scopeName);
-			if (rawGrammar == null) {
-				return null;
-			}
-			this._grammars.put(scopeName, new Grammar(
-					scopeName,
-					rawGrammar,
-					initialLanguage,
-					embeddedLanguages,
-					tokenTypes,
-					balancedBracketSelectors,
-					this,
-					this));
+		final var grammar = castNullable(this._grammars.get(scopeName));
+		if (grammar != null) {
+			return grammar;
+		}
+		final var rawGrammar = lookup(scopeName);
+		if (rawGrammar == null) {
+			return null;
 		}
-		return this._grammars.get(scopeName);
+		// creating a grammar is cheap since its rules are compiled on first use
+		final var newGrammar = new Grammar(
+				scopeName,
+				rawGrammar,
+				initialLanguage,
+				embeddedLanguages,
+				tokenTypes,
+				balancedBracketSelectors,
+				this,
+				this);
+		final var existingGrammar = castNullable(this._grammars.putIfAbsent(scopeName, newGrammar));
+		return existingGrammar == null ? newGrammar : existingGrammar;
 	}
 }
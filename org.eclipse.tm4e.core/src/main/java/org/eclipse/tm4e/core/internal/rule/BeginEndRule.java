@@ -18,6 +18,7 @@
 
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.defaultIfNull;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -42,7 +43,7 @@ public final class BeginEndRule extends Rule {
 	final RuleId[] patterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	BeginEndRule(final RuleId id, @Nullable final String name, @Nullable final String contentName, final String begin,
 			final List<@Nullable CaptureRule> beginCaptures, @Nullable final String end,
@@ -76,6 +77,12 @@ public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList
 		out.add(this.begin);
 	}
 
+	@Override
+	public void collectRegExpSources(final Collection<String> out) {
+		this.begin.collectCompiledSources(out);
+		this.end.collectCompiledSources(out);
+	}
+
 	@Override
 	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
 		return getCachedCompiledPatterns(grammar, endRegexSource).compile();
@@ -87,6 +94,13 @@ public CompiledRule compileAG(final IRuleRegistry grammar, @Nullable final Strin
 		return getCachedCompiledPatterns(grammar, endRegexSource).compileAG(allowA, allowG);
 	}
 
+	@Override
+	public void precompile(final IRuleRegistry grammar) {
+		// an end pattern with back references is only known once the begin pattern matched, so a placeholder is used to
+		// compile the other patterns
+		precompileAG(grammar, this.endHasBackReferences ? "\uFFFF" : null);
+	}
+
 	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
@@ -106,10 +120,9 @@ private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar,
 		}
 		if (this.endHasBackReferences && endRegexSource != null) {
 			if (this.applyEndPatternLast) {
-				cachedCompiledPatterns.setSource(cachedCompiledPatterns.length() - 1, endRegexSource);
-			} else {
-				cachedCompiledPatterns.setSource(0, endRegexSource);
+				return cachedCompiledPatterns.withSource(cachedCompiledPatterns.length() - 1, endRegexSource);
 			}
+			return cachedCompiledPatterns.withSource(0, endRegexSource);
 		}
 		return cachedCompiledPatterns;
 	}
@@ -18,6 +18,7 @@
 
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.defaultIfNull;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -39,10 +40,10 @@ public final class BeginWhileRule extends Rule {
 	final RuleId[] patterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledWhilePatterns;
+	private volatile RegExpSourceList cachedCompiledWhilePatterns;
 
 	BeginWhileRule(final RuleId id, @Nullable final String name, @Nullable final String contentName,
 			final String begin, final List<@Nullable CaptureRule> beginCaptures,
@@ -67,6 +68,12 @@ public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList
 		out.add(this.begin);
 	}
 
+	@Override
+	public void collectRegExpSources(final Collection<String> out) {
+		this.begin.collectCompiledSources(out);
+		this._while.collectCompiledSources(out);
+	}
+
 	@Override
 	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
 		return getCachedCompiledPatterns(grammar).compile();
@@ -82,16 +89,24 @@ private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar)
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
 			cachedCompiledPatterns = new RegExpSourceList();
-			this.cachedCompiledPatterns = cachedCompiledPatterns;
-
 			for (final var pattern : this.patterns) {
 				final var rule = grammar.getRule(pattern);
 				rule.collectPatterns(grammar, cachedCompiledPatterns);
 			}
+			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
 		return cachedCompiledPatterns;
 	}
 
+	@Override
+	public void precompile(final IRuleRegistry grammar) {
+		super.precompile(grammar);
+		compileWhileAG(null, false, false);
+		compileWhileAG(null, false, true);
+		compileWhileAG(null, true, false);
+		compileWhileAG(null, true, true);
+	}
+
 	public CompiledRule compileWhile(@Nullable final String endRegexSource) {
 		return getCachedCompiledWhilePatterns(endRegexSource).compile();
 	}
@@ -109,7 +124,7 @@ private RegExpSourceList getCachedCompiledWhilePatterns(@Nullable final String e
 			this.cachedCompiledWhilePatterns = cachedCompiledWhilePatterns;
 		}
 		if (whileHasBackReferences) {
-			cachedCompiledWhilePatterns.setSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
+			return cachedCompiledWhilePatterns.withSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
 		}
 		return cachedCompiledWhilePatterns;
 	}
@@ -16,6 +16,8 @@
  */
 package org.eclipse.tm4e.core.internal.rule;
 
+import java.util.Collection;
+
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
@@ -38,11 +40,21 @@ public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void collectRegExpSources(final Collection<String> out) {
+		// the rule has no regular expressions of its own
+	}
+
 	@Override
 	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void precompile(final IRuleRegistry grammar) {
+		// the rule has no patterns of its own, the rule retokenizing the capture is precompiled separately
+	}
+
 	@Override
 	public CompiledRule compileAG(final IRuleRegistry grammar, @Nullable final String endRegexSource,
 			final boolean allowA, final boolean allowG) {
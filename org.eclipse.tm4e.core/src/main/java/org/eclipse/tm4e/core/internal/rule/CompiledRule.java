@@ -29,9 +29,9 @@ public final class CompiledRule {
 
 	public final List<String> debugRegExps;
 	public final OnigScanner scanner;
-	public final RuleId[] rules;
+	public final int[] rules;
 
-	CompiledRule(final List<String> regExps, final RuleId[] rules) {
+	CompiledRule(final List<String> regExps, final int[] rules) {
 		this.debugRegExps = regExps;
 		this.rules = rules;
 		this.scanner = new OnigScanner(regExps);
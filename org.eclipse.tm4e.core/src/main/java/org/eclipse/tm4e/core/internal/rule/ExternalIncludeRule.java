@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.rule;
+
+import static java.lang.System.Logger.Level.WARNING;
+
+import java.lang.System.Logger;
+import java.util.Collection;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.grammar.raw.IRawRepository;
+
+/**
+ * Placeholder for a rule included from an external grammar that is not loaded yet, see
+ * {@link org.eclipse.tm4e.core.internal.registry.IGrammarRepository#isLoadingOnDemand()}.
+ * <p>
+ * The external grammar is loaded and the included rule compiled when the patterns of this rule are first collected,
+ * i.e. when the tokenizer first reaches a rule including it, e.g. the first fenced code block of a language in a
+ * Markdown document. From then on the patterns of the included rule are used in place of this rule.
+ */
+public final class ExternalIncludeRule extends Rule {
+
+	private static final Logger LOGGER = System.getLogger(ExternalIncludeRule.class.getName());
+
+	private final String scopeName;
+	@Nullable
+	private final String ruleName;
+	private final String include;
+	private final IRuleFactoryHelper helper;
+	private final IRawRepository repository;
+
+	/**
+	 * The id of the included rule once the external grammar is loaded, {@link RuleId#NO_RULE} if the grammar or the
+	 * rule was not found.
+	 */
+	@Nullable
+	private volatile RuleId includedRuleId;
+
+	ExternalIncludeRule(final RuleId id, final String scopeName, @Nullable final String ruleName, final String include,
+			final IRuleFactoryHelper helper, final IRawRepository repository) {
+		super(id, null, null);
+		this.scopeName = scopeName;
+		this.ruleName = ruleName;
+		this.include = include;
+		this.helper = helper;
+		this.repository = repository;
+	}
+
+	@Override
+	public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList out) {
+		final var includedRuleId = getIncludedRuleId();
+		if (includedRuleId != RuleId.NO_RULE) {
+			grammar.getRule(includedRuleId).collectPatterns(grammar, out);
+		}
+	}
+
+	private RuleId getIncludedRuleId() {
+		var includedRuleId = this.includedRuleId;
+		if (includedRuleId == null) {
+			synchronized (helper) {
+				includedRuleId = this.includedRuleId;
+				if (includedRuleId == null) {
+					final var externalGrammar = helper.loadExternalGrammar(scopeName, repository);
+					if (externalGrammar == null) {
+						LOGGER.log(WARNING, "CANNOT find grammar for scopeName [{0}]. I am [{1}]",
+								include, repository.getBase().getName());
+					} else {
+						includedRuleId = RuleFactory.getCompiledExternalRuleId(externalGrammar, ruleName, include, helper,
+								repository);
+					}
+					if (includedRuleId == null) {
+						includedRuleId = RuleId.NO_RULE;
+					}
+					this.includedRuleId = includedRuleId;
+				}
+			}
+		}
+		return includedRuleId;
+	}
+
+	@Override
+	public void collectRegExpSources(final Collection<String> out) {
+		// the rule has no regular expressions of its own
+	}
+
+	@Override
+	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public CompiledRule compileAG(final IRuleRegistry grammar, @Nullable final String endRegexSource,
+			final boolean allowA, final boolean allowG) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void precompile(final IRuleRegistry grammar) {
+		// the rule has no patterns of its own, the external grammar is loaded when the rules including it are precompiled
+	}
+}
@@ -29,4 +29,17 @@ interface IGrammarRegistry {
 
 	@Nullable
 	IRawGrammar getExternalGrammar(String scopeName, IRawRepository repository);
+
+	/**
+	 * Like <code>getExternalGrammar</code> but loads the grammar if it was not loaded yet, see
+	 * <code>isLoadingOnDemand</code>.
+	 */
+	@Nullable
+	IRawGrammar loadExternalGrammar(String scopeName, IRawRepository repository);
+
+	/**
+	 * @return <code>true</code> if external grammars that are not loaded yet are included via an
+	 *         {@link ExternalIncludeRule}, which loads them when the tokenizer first reaches the include
+	 */
+	boolean isLoadingOnDemand();
 }
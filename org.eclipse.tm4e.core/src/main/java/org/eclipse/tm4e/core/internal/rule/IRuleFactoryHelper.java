@@ -16,11 +16,36 @@
  */
 package org.eclipse.tm4e.core.internal.rule;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.grammar.raw.IRawRule;
+
 /**
+ * Rules are registered while holding the lock of the helper. This also applies to the rules of external grammars
+ * compiled on first use by an {@link ExternalIncludeRule}.
+ *
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/rule.ts#L40">
  *      github.com/microsoft/vscode-textmate/blob/main/src/rule.ts</a>
  */
 public interface IRuleFactoryHelper extends IRuleRegistry, IGrammarRegistry {
 
+	/**
+	 * Raw rules are shared by all grammar instances, so unlike in vscode-textmate the ids of the rules compiled from
+	 * them are not stored in the raw rules but by the grammar instance.
+	 *
+	 * @return the id of the rule compiled from the given raw rule or <code>null</code> if not yet compiled
+	 */
+	@Nullable
+	RuleId getRuleId(IRawRule rawRule);
+
+	void setRuleId(IRawRule rawRule, RuleId ruleId);
+
+	/**
+	 * Unlike {@link #getRule(RuleId)}, does not fail for a rule whose id is already registered but which is still
+	 * being compiled, e.g. a rule including itself or a raw rule shared with an include of the same grammar.
+	 *
+	 * @return the rule with the given id or <code>null</code> if it is still being compiled
+	 */
+	@Nullable
+	Rule findRule(RuleId ruleId);
 }
@@ -28,7 +28,14 @@ public interface IRuleRegistry {
 	/**
 	 * @throws IndexOutOfBoundsException if no rule with the given id was found.
 	 */
-	Rule getRule(RuleId ruleId);
+	Rule getRule(int ruleId);
+
+	/**
+	 * @throws IndexOutOfBoundsException if no rule with the given id was found.
+	 */
+	default Rule getRule(final RuleId ruleId) {
+		return getRule(ruleId.id);
+	}
 
 	<T extends Rule> T registerRule(Function<RuleId, T> factory);
 }
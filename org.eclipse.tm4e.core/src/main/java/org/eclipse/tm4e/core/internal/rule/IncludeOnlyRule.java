@@ -16,6 +16,8 @@
  */
 package org.eclipse.tm4e.core.internal.rule;
 
+import java.util.Collection;
+
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
@@ -29,7 +31,7 @@ final class IncludeOnlyRule extends Rule {
 	final RuleId[] patterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	IncludeOnlyRule(final RuleId id, @Nullable final String name, @Nullable final String contentName,
 			final CompilePatternsResult patterns) {
@@ -46,6 +48,11 @@ public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList
 		}
 	}
 
+	@Override
+	public void collectRegExpSources(final Collection<String> out) {
+		// the rule has no regular expressions of its own
+	}
+
 	@Override
 	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
 		return getCachedCompiledPatterns(grammar).compile();
@@ -16,6 +16,7 @@
  */
 package org.eclipse.tm4e.core.internal.rule;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -31,7 +32,7 @@ public final class MatchRule extends Rule {
 	public final List<@Nullable CaptureRule> captures;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	MatchRule(final RuleId id, @Nullable final String name, final String match, final List<@Nullable CaptureRule> captures) {
 		super(id, name, null);
@@ -44,6 +45,11 @@ public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList
 		out.add(this.match);
 	}
 
+	@Override
+	public void collectRegExpSources(final Collection<String> out) {
+		this.match.collectCompiledSources(out);
+	}
+
 	@Override
 	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
 		return getCachedCompiledPatterns(grammar).compile();
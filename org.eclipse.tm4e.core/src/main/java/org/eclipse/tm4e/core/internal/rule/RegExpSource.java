@@ -17,6 +17,8 @@
 package org.eclipse.tm4e.core.internal.rule;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,11 +37,11 @@ final class RegExpSource {
 	private static final Pattern HAS_BACK_REFERENCES = Pattern.compile("\\\\(\\d+)");
 	private static final Pattern BACK_REFERENCING_END = Pattern.compile("\\\\(\\d+)");
 
-	private String source;
+	private final String source;
 	final RuleId ruleId;
 	final boolean hasBackReferences;
 
-	private String @Nullable [][] anchorCache;
+	private final String @Nullable [][] anchorCache;
 
 	RegExpSource(final String regExpSource, final RuleId ruleId) {
 		this(regExpSource, ruleId, true);
@@ -77,11 +79,10 @@ final class RegExpSource {
 				output.append(regExpSource.substring(lastPushedPos, len));
 				source = output.toString();
 			}
-			if (hasAnchors) {
-				anchorCache = buildAnchorCache();
-			}
+			anchorCache = hasAnchors ? buildAnchorCache() : null;
 		} else {
 			this.source = regExpSource;
+			this.anchorCache = null;
 		}
 
 		this.ruleId = ruleId;
@@ -93,15 +94,21 @@ protected RegExpSource clone() {
 		return new RegExpSource(source, this.ruleId);
 	}
 
-	void setSource(final String newSource) {
-		if (Objects.equals(source, newSource)) {
-			return;
-		}
+	private RegExpSource(final RegExpSource original, final String newSource) {
 		this.source = newSource;
+		this.ruleId = original.ruleId;
+		this.hasBackReferences = original.hasBackReferences;
+		this.anchorCache = original.hasAnchor() ? buildAnchorCache() : null;
+	}
 
-		if (hasAnchor()) {
-			this.anchorCache = buildAnchorCache();
+	/**
+	 * @return this instance if the source is unchanged, otherwise a copy with the given source
+	 */
+	RegExpSource withSource(final String newSource) {
+		if (Objects.equals(source, newSource)) {
+			return this;
 		}
+		return new RegExpSource(this, newSource);
 	}
 
 	@SuppressWarnings("null")
@@ -177,6 +184,19 @@ String resolveAnchors(final boolean allowA, final boolean allowG) {
 		return anchorCache[allowA ? 1 : 0][allowG ? 1 : 0];
 	}
 
+	/**
+	 * Adds the source and, if it contains anchors, the variants with resolved anchors.
+	 */
+	void collectCompiledSources(final Collection<String> out) {
+		out.add(source);
+		final var anchorCache = this.anchorCache;
+		if (anchorCache != null) {
+			for (final var sources : anchorCache) {
+				Collections.addAll(out, sources);
+			}
+		}
+	}
+
 	boolean hasAnchor() {
 		return anchorCache != null;
 	}
@@ -32,17 +32,19 @@ final class RegExpSourceList {
 	private final List<RegExpSource> items = new ArrayList<>();
 	private boolean hasAnchors;
 
+	/*
+	 * The compiled rules are immutable, so lazily populating the caches without synchronization is safe. In the worst
+	 * case concurrent threads compile the same rule twice.
+	 */
 	@Nullable
 	private CompiledRule cached;
 	private final CompiledRule[][] anchorCache = new CompiledRule[2][2];
 
-	private void disposeCache() {
-		cached = null;
-		anchorCache[0][0] = null;
-		anchorCache[0][1] = null;
-		anchorCache[1][0] = null;
-		anchorCache[1][1] = null;
-	}
+	/**
+	 * the last copy created by {@link #withSource(int, String)}
+	 */
+	@Nullable
+	private volatile RegExpSourceList lastWithSource;
 
 	void add(final RegExpSource item) {
 		items.add(item);
@@ -62,19 +64,34 @@ int length() {
 		return items.size();
 	}
 
-	void setSource(final int index, final String newSource) {
-		final RegExpSource r = items.get(index);
-		if (!Objects.equals(r.getSource(), newSource)) {
-			disposeCache();
-			r.setSource(newSource);
+	/**
+	 * Unlike upstream's <code>setSource</code> this does not modify this list (which is shared by all threads using the
+	 * grammar) but returns a copy with the source of the given item replaced. The last copy is cached.
+	 *
+	 * @return this list if the source is unchanged, otherwise a list with the source of the given item replaced
+	 */
+	RegExpSourceList withSource(final int index, final String newSource) {
+		if (Objects.equals(items.get(index).getSource(), newSource)) {
+			return this;
+		}
+
+		var lastWithSource = this.lastWithSource;
+		if (lastWithSource == null || !Objects.equals(lastWithSource.items.get(index).getSource(), newSource)) {
+			lastWithSource = new RegExpSourceList();
+			for (int i = 0; i < items.size(); i++) {
+				final var item = items.get(i);
+				lastWithSource.add(i == index ? item.withSource(newSource) : item);
+			}
+			this.lastWithSource = lastWithSource;
 		}
+		return lastWithSource;
 	}
 
 	CompiledRule compile() {
 		var cached = this.cached;
 		if (cached == null) {
 			final List<String> regexps = items.stream().map(RegExpSource::getSource).toList();
-			cached = this.cached = new CompiledRule(regexps, items.stream().map(e -> e.ruleId).toArray(RuleId[]::new));
+			cached = this.cached = new CompiledRule(regexps, items.stream().mapToInt(e -> e.ruleId.id).toArray());
 		}
 		return cached;
 	}
@@ -96,6 +113,6 @@ CompiledRule compileAG(final boolean allowA, final boolean allowG) {
 
 	private CompiledRule resolveAnchors(final boolean allowA, final boolean allowG) {
 		final List<String> regexps = items.stream().map(e -> e.resolveAnchors(allowA, allowG)).toList();
-		return new CompiledRule(regexps, items.stream().map(e -> e.ruleId).toArray(RuleId[]::new));
+		return new CompiledRule(regexps, items.stream().mapToInt(e -> e.ruleId.id).toArray());
 	}
 }
@@ -16,6 +16,8 @@
  */
 package org.eclipse.tm4e.core.internal.rule;
 
+import java.util.Collection;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigCaptureIndex;
 import org.eclipse.tm4e.core.internal.utils.RegexSource;
@@ -66,10 +68,31 @@ public String getContentName(final CharSequence lineText, final OnigCaptureIndex
 
 	public abstract void collectPatterns(IRuleRegistry grammar, RegExpSourceList out);
 
+	/**
+	 * Adds the sources of the regular expressions of this rule as passed to the regex engine, i.e. including the
+	 * variants with resolved anchors. Sources with resolved back references are not included.
+	 */
+	public abstract void collectRegExpSources(Collection<String> out);
+
 	public abstract CompiledRule compile(IRuleRegistry grammar, @Nullable String endRegexSource);
 
 	public abstract CompiledRule compileAG(IRuleRegistry grammar, @Nullable String endRegexSource, boolean allowA, boolean allowG);
 
+	/**
+	 * Compiles the patterns of this rule for all anchor variants, which otherwise happens when the rule is first used
+	 * during tokenization.
+	 */
+	public void precompile(final IRuleRegistry grammar) {
+		precompileAG(grammar, null);
+	}
+
+	final void precompileAG(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
+		compileAG(grammar, endRegexSource, false, false);
+		compileAG(grammar, endRegexSource, false, true);
+		compileAG(grammar, endRegexSource, true, false);
+		compileAG(grammar, endRegexSource, true, true);
+	}
+
 	@Override
 	public String toString() {
 		return StringUtils.toString(this, sb -> {
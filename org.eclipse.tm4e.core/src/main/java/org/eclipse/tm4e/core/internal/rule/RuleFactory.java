@@ -28,6 +28,7 @@
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.grammar.dependencies.IncludeReference;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawCaptures;
+import org.eclipse.tm4e.core.internal.grammar.raw.IRawGrammar;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawRepository;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawRule;
 import org.eclipse.tm4e.core.internal.grammar.raw.RawRule;
@@ -47,9 +48,9 @@ private static CaptureRule createCaptureRule(final IRuleFactoryHelper helper, @N
 	}
 
 	public static RuleId getCompiledRuleId(final IRawRule desc, final IRuleFactoryHelper helper, final IRawRepository repository) {
-		if (desc.getId() == null) {
+		if (helper.getRuleId(desc) == null) {
 			helper.registerRule(ruleId -> {
-				desc.setId(ruleId);
+				helper.setRuleId(desc, ruleId);
 
 				final var ruleMatch = desc.getMatch();
 				if (ruleMatch != null) {
@@ -99,7 +100,7 @@ begin, _compileCaptures(defaultIfNull(desc.getBeginCaptures(), desc.getCaptures(
 						_compilePatterns(desc.getPatterns(), helper, repository));
 			});
 		}
-		return castNonNull(desc.getId());
+		return castNonNull(helper.getRuleId(desc));
 	}
 
 	private static List<@Nullable CaptureRule> _compileCaptures(@Nullable final IRawCaptures captures, final IRuleFactoryHelper helper,
@@ -143,6 +144,29 @@ private static int parseInt(final String string, final int base) {
 		}
 	}
 
+	/**
+	 * @param externalGrammarInclude the name of the included repository rule or <code>null</code> to include the
+	 *            <code>$self</code> rule of the external grammar
+	 *
+	 * @return the id of the included rule or <code>null</code> if the external grammar has no such rule
+	 */
+	@Nullable
+	static RuleId getCompiledExternalRuleId(final IRawGrammar externalGrammar, @Nullable final String externalGrammarInclude,
+			final String patternInclude, final IRuleFactoryHelper helper, final IRawRepository repository) {
+		final var externalGrammarRepo = externalGrammar.getRepository();
+		if (externalGrammarInclude == null) {
+			return getCompiledRuleId(externalGrammarRepo.getSelf(), helper, externalGrammarRepo);
+		}
+
+		final var externalIncludedRule = externalGrammarRepo.getRule(externalGrammarInclude);
+		if (externalIncludedRule != null) {
+			return getCompiledRuleId(externalIncludedRule, helper, externalGrammarRepo);
+		}
+		LOGGER.log(WARNING, "CANNOT find rule for scopeName [{0}]. I am [{1}]",
+				patternInclude, repository.getBase().getName());
+		return null;
+	}
+
 	private static CompilePatternsResult _compilePatterns(@Nullable final Collection<IRawRule> patterns, final IRuleFactoryHelper helper,
 			final IRawRepository repository) {
 		if (patterns == null) {
@@ -177,27 +201,21 @@ private static CompilePatternsResult _compilePatterns(@Nullable final Collection
 					case TopLevelReference, TopLevelRepositoryReference:
 
 						final var externalGrammarName = reference.scopeName;
+						@Nullable
+						final String externalGrammarInclude = reference.kind == IncludeReference.Kind.TopLevelRepositoryReference
+								? reference.ruleName
+								: null;
 
 						// External include
 						final var externalGrammar = helper.getExternalGrammar(externalGrammarName, repository);
 
 						if (externalGrammar != null) {
-							final var externalGrammarRepo = externalGrammar.getRepository();
-							@Nullable
-							final String externalGrammarInclude = reference.kind == IncludeReference.Kind.TopLevelRepositoryReference
-									? reference.ruleName
-									: null;
-							if (externalGrammarInclude != null) {
-								final var externalIncludedRule = externalGrammarRepo.getRule(externalGrammarInclude);
-								if (externalIncludedRule != null) {
-									ruleId = getCompiledRuleId(externalIncludedRule, helper, externalGrammarRepo);
-								} else {
-									LOGGER.log(WARNING, "CANNOT find rule for scopeName [{0}]. I am [{1}]",
-											patternInclude, repository.getBase().getName());
-								}
-							} else {
-								ruleId = getCompiledRuleId(externalGrammarRepo.getSelf(), helper, externalGrammarRepo);
-							}
+							ruleId = getCompiledExternalRuleId(externalGrammar, externalGrammarInclude, patternInclude, helper,
+									repository);
+						} else if (helper.isLoadingOnDemand()) {
+							// the grammar is loaded when the tokenizer first reaches the include
+							ruleId = helper.registerRule(id -> new ExternalIncludeRule(id, externalGrammarName,
+									externalGrammarInclude, patternInclude, helper, repository)).id;
 						} else {
 							LOGGER.log(WARNING, "CANNOT find grammar for scopeName [{0}]. I am [{1}]",
 									patternInclude, repository.getBase().getName());
@@ -209,18 +227,8 @@ private static CompilePatternsResult _compilePatterns(@Nullable final Collection
 			}
 
 			if (ruleId != null) {
-				Rule rule;
-				try {
-					rule = helper.getRule(ruleId);
-				} catch (final IndexOutOfBoundsException ex) {
-					rule = null;
-					if (patternInclude != null) {
-						// TODO currently happens if an include rule references another not yet parsed rule
-					} else {
-						// should never happen
-						ex.printStackTrace();
-					}
-				}
+				// null if the rule is still being compiled, i.e. it is included by one of the rules it contains
+				final @Nullable Rule rule = helper.findRule(ruleId);
 				boolean skipRule = false;
 
 				if (rule instanceof final IncludeOnlyRule ior) {
@@ -26,17 +26,29 @@
  */
 public final class RuleId {
 
-	public static final RuleId NO_RULE = new RuleId(0);
+	public static final int NO_RULE_ID = 0;
 
 	/**
 	 * This is a special constant to indicate that the end regexp matched.
 	 */
-	public static final RuleId END_RULE = new RuleId(-1);
+	public static final int END_RULE_ID = -1;
 
 	/**
 	 * This is a special constant to indicate that the while regexp matched.
 	 */
-	public static final RuleId WHILE_RULE = new RuleId(-2);
+	public static final int WHILE_RULE_ID = -2;
+
+	public static final RuleId NO_RULE = new RuleId(NO_RULE_ID);
+
+	/**
+	 * This is a special constant to indicate that the end regexp matched.
+	 */
+	public static final RuleId END_RULE = new RuleId(END_RULE_ID);
+
+	/**
+	 * This is a special constant to indicate that the while regexp matched.
+	 */
+	public static final RuleId WHILE_RULE = new RuleId(WHILE_RULE_ID);
 
 	public static RuleId of(final int id) {
 		if (id < 0)
@@ -12,15 +12,18 @@
 package org.eclipse.tm4e.core.internal.theme;
 
 import static org.eclipse.tm4e.core.internal.utils.MoreCollections.*;
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
 import static org.eclipse.tm4e.core.internal.utils.StringUtils.*;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
 import org.eclipse.tm4e.core.internal.theme.raw.IRawTheme;
@@ -38,6 +41,31 @@
  */
 public final class Theme {
 
+	/**
+	 * Snapshot of the statistics of the cache of {@link Theme#match(ScopeStack)}.
+	 *
+	 * @param hits number of matches answered by the cache
+	 * @param misses number of matches resolved via the theme rules
+	 * @param evictions number of times the cache was cleared because it exceeded its maximum size
+	 * @param size current number of cached scope paths
+	 */
+	@NonNullByDefault({})
+	public record MatchCacheStats(long hits, long misses, long evictions, int size) {
+	}
+
+	/**
+	 * The result of {@link Theme#match(ScopeStack)}, since the cache cannot store <code>null</code>.
+	 */
+	@NonNullByDefault({})
+	private record MatchResult(@Nullable StyleAttributes styleAttributes) {
+	}
+
+	/**
+	 * Maximum number of scope paths for which the result of {@link #match(ScopeStack)} is cached. Exceeding it clears
+	 * the cache, which only happens for documents with an unusually high number of distinct scope paths.
+	 */
+	static final int MAX_CACHED_MATCHES = 10_000;
+
 	public static Theme createFromRawTheme(@Nullable final IRawTheme source, @Nullable final List<String> colorMap) {
 		return createFromParsedTheme(parseTheme(source), colorMap);
 	}
@@ -46,7 +74,16 @@ public static Theme createFromParsedTheme(final List<ParsedThemeRule> source, @N
 		return resolveParsedThemeRules(source, colorMap);
 	}
 
-	private final Map<String /* scopeName */, List<ThemeTrieElementRule>> _cachedMatchRoot = new HashMap<>();
+	private final Map<String /* scopeName */, List<ThemeTrieElementRule>> _cachedMatchRoot = new ConcurrentHashMap<>();
+
+	/**
+	 * The results of {@link #match(ScopeStack)}. Scope stacks pushed by the tokenizer are mostly re-used instances, see
+	 * {@link ScopeStack#push(String)}, so the keys can usually be compared by identity.
+	 */
+	private final Map<ScopeStack, MatchResult> _cachedMatches = new ConcurrentHashMap<>();
+	private final LongAdder _cachedMatchesHits = new LongAdder();
+	private final LongAdder _cachedMatchesMisses = new LongAdder();
+	private final LongAdder _cachedMatchesEvictions = new LongAdder();
 
 	private final ColorMap _colorMap;
 	private final StyleAttributes _defaults;
@@ -71,6 +108,33 @@ public StyleAttributes match(@Nullable final ScopeStack scopePath) {
 		if (scopePath == null) {
 			return this._defaults;
 		}
+
+		var result = castNullable(this._cachedMatches.get(scopePath));
+		if (result != null) {
+			this._cachedMatchesHits.increment();
+			return result.styleAttributes;
+		}
+		this._cachedMatchesMisses.increment();
+
+		result = new MatchResult(_match(scopePath));
+		if (this._cachedMatches.size() >= MAX_CACHED_MATCHES) {
+			this._cachedMatches.clear();
+			this._cachedMatchesEvictions.increment();
+		}
+		this._cachedMatches.put(scopePath, result);
+		return result.styleAttributes;
+	}
+
+	public MatchCacheStats getMatchCacheStats() {
+		return new MatchCacheStats(
+				this._cachedMatchesHits.sum(),
+				this._cachedMatchesMisses.sum(),
+				this._cachedMatchesEvictions.sum(),
+				this._cachedMatches.size());
+	}
+
+	@Nullable
+	private StyleAttributes _match(final ScopeStack scopePath) {
 		final var scopeName = scopePath.scopeName;
 
 		final var matchingTrieElements = this._cachedMatchRoot.computeIfAbsent(scopeName, _root::match);
@@ -49,6 +49,14 @@ enum BackgroundTokenizationState {
 
 	int getNumberOfLines();
 
+	/**
+	 * Informs the model about the lines currently visible to the user, which are then tokenized with priority.
+	 *
+	 * @param startLineIndex 0-based index of the first visible line or -1 if no lines are visible
+	 * @param endLineIndex 0-based index of the last visible line (inclusive)
+	 */
+	void setVisibleRange(int startLineIndex, int endLineIndex);
+
 	/**
 	 * @param lineIndex 0-based
 	 *
@@ -64,4 +72,24 @@ enum BackgroundTokenizationState {
 	 */
 	@Nullable
 	List<TMToken> getLineTokens(int lineIndex);
+
+	/**
+	 * Returns the tokens of the given line in a compact form that does not require a {@link TMToken} instance per token.
+	 *
+	 * @param lineIndex 0-based
+	 *
+	 * @return <code>null</code> if line does not exist or has not yet been tokenized, otherwise an array holding for each
+	 *         token its start index followed by the id of its type, i.e.
+	 *         <code>[startIndex0, typeId0, startIndex1, typeId1, ...]</code>
+	 *
+	 * @see #getTokenType(int)
+	 */
+	int @Nullable [] getLineTokensPacked(int lineIndex);
+
+	/**
+	 * @param tokenTypeId a token type id as returned by {@link #getLineTokensPacked(int)}
+	 *
+	 * @return the token type, i.e. the value of {@link TMToken#type}
+	 */
+	String getTokenType(int tokenTypeId);
 }
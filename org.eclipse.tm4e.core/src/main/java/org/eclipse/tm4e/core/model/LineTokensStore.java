@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.StateStack;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Columnar store of the tokenization state of the lines of a {@link TMModel}.
+ * <p>
+ * Instead of one object per line and per token, the start state, end state and tokens of all lines are held in parallel
+ * arrays indexed by line. The tokens of a line are packed into a single int array holding the start index and the id of
+ * the token type of each token. Token types are interned in a table shared by all lines of the model and the states are
+ * interned too, so that equal states of different lines are represented by the same instance.
+ * <p>
+ * The arrays are organized as a gap buffer: the unused slots form a gap that is kept at the position of the last
+ * insertion or removal. Inserting or removing lines thus only moves the lines between the previous and the current edit
+ * position instead of all following lines, so that consecutive edits at nearby positions, e.g. caused by pasting or
+ * formatting, cost amortized O(1) regardless of the document size.
+ * <p>
+ * All methods are synchronized.
+ */
+final class LineTokensStore {
+
+	private static final IStateStack[] NO_STATES = {};
+	private static final @Nullable IStateStack[] NO_NULLABLE_STATES = {};
+	private static final int[] @Nullable [] NO_TOKENS = {};
+
+	/**
+	 * Weak interner so that states no longer referenced by any line can be garbage collected.
+	 */
+	private final Interner<IStateStack> stateTable = Interners.newWeakInterner();
+
+	private final List<String> tokenTypes = new ArrayList<>();
+	private final Map<String, Integer> tokenTypeIds = new HashMap<>();
+
+	/** start states per slot, slots of the gap hold {@link StateStack#NULL} */
+	private IStateStack[] startStates = NO_STATES;
+
+	/** end states per slot, slots of the gap hold <code>null</code> */
+	private @Nullable IStateStack[] endStates = NO_NULLABLE_STATES;
+
+	/**
+	 * Packed tokens per slot in the format <code>[startIndex0, typeId0, startIndex1, typeId1, ...]</code>, or
+	 * <code>null</code> if the line has not yet been tokenized. Slots of the gap hold <code>null</code>.
+	 */
+	private int[] @Nullable [] tokens = NO_TOKENS;
+
+	/** index of the first slot of the gap */
+	private int gapStart;
+
+	/** index of the first slot after the gap */
+	private int gapEnd;
+
+	LineTokensStore(final int initialCapacity) {
+		ensureGapSize(initialCapacity);
+	}
+
+	/**
+	 * @return the index of the slot holding the given line
+	 */
+	private int slot(final int lineIndex) {
+		Objects.checkIndex(lineIndex, size());
+		return lineIndex < gapStart ? lineIndex : lineIndex + gapEnd - gapStart;
+	}
+
+	private void ensureGapSize(final int minGapSize) {
+		final int capacity = startStates.length;
+		final int gapSize = gapEnd - gapStart;
+		if (minGapSize <= gapSize)
+			return;
+
+		final int newCapacity = Math.max(capacity - gapSize + minGapSize, Math.max(10, capacity + (capacity >> 1)));
+		final int newGapEnd = newCapacity - (capacity - gapEnd);
+		startStates = grow(startStates, newCapacity, newGapEnd, StateStack.NULL);
+		endStates = grow(endStates, newCapacity, newGapEnd, null);
+		tokens = grow(tokens, newCapacity, newGapEnd, null);
+		gapEnd = newGapEnd;
+	}
+
+	private <T> T[] grow(final T[] slots, final int newCapacity, final int newGapEnd, final @Nullable T gapValue) {
+		final T[] newSlots = Arrays.copyOf(slots, newCapacity);
+		System.arraycopy(slots, gapEnd, newSlots, newGapEnd, slots.length - gapEnd);
+		Arrays.fill(newSlots, gapStart, newGapEnd, gapValue);
+		return newSlots;
+	}
+
+	/**
+	 * Moves the gap so that it starts at the given line index.
+	 */
+	private void moveGap(final int lineIndex) {
+		if (lineIndex < gapStart) {
+			// move the lines in front of the gap to its end
+			final int count = gapStart - lineIndex;
+			moveSlots(startStates, lineIndex, gapEnd - count, count, StateStack.NULL);
+			moveSlots(endStates, lineIndex, gapEnd - count, count, null);
+			moveSlots(tokens, lineIndex, gapEnd - count, count, null);
+			gapStart -= count;
+			gapEnd -= count;
+		} else if (lineIndex > gapStart) {
+			// move the lines behind the gap to its start
+			final int count = lineIndex - gapStart;
+			moveSlots(startStates, gapEnd, gapStart, count, StateStack.NULL);
+			moveSlots(endStates, gapEnd, gapStart, count, null);
+			moveSlots(tokens, gapEnd, gapStart, count, null);
+			gapStart += count;
+			gapEnd += count;
+		}
+	}
+
+	/**
+	 * Moves the given number of slots and fills the source slots not overwritten by the move with the given value, so
+	 * that slots becoming part of the gap do not hold references to states or tokens.
+	 */
+	private static <T> void moveSlots(final T[] slots, final int from, final int to, final int count,
+			final @Nullable T gapValue) {
+		System.arraycopy(slots, from, slots, to, count);
+		if (from < to) {
+			Arrays.fill(slots, from, Math.min(from + count, to), gapValue);
+		} else {
+			Arrays.fill(slots, Math.max(from, to + count), from + count, gapValue);
+		}
+	}
+
+	synchronized int size() {
+		return startStates.length - (gapEnd - gapStart);
+	}
+
+	synchronized IStateStack getStartState(final int lineIndex) {
+		return startStates[slot(lineIndex)];
+	}
+
+	synchronized void setStartState(final int lineIndex, final IStateStack state) {
+		startStates[slot(lineIndex)] = stateTable.intern(state);
+	}
+
+	synchronized @Nullable IStateStack getEndState(final int lineIndex) {
+		return endStates[slot(lineIndex)];
+	}
+
+	/**
+	 * @return the end state of the nearest line above the given line that has one, or <code>null</code> if there is
+	 *         none
+	 */
+	synchronized @Nullable IStateStack findEndStateAbove(final int lineIndex) {
+		for (int i = Math.min(lineIndex, size()) - 1; i >= 0; i--) {
+			final var endState = endStates[i < gapStart ? i : i + gapEnd - gapStart];
+			if (endState != null)
+				return endState;
+		}
+		return null;
+	}
+
+	/**
+	 * @return <code>true</code> if tokens are stored for the given line
+	 */
+	synchronized boolean hasTokens(final int lineIndex) {
+		return tokens[slot(lineIndex)] != null;
+	}
+
+	/**
+	 * @return <code>null</code> if the line does not exist or has not yet been tokenized
+	 */
+	synchronized @Nullable List<TMToken> getTokens(final int lineIndex) {
+		if (lineIndex < 0 || lineIndex >= size())
+			return null;
+		final var lineTokens = tokens[slot(lineIndex)];
+		if (lineTokens == null)
+			return null;
+
+		final var result = new ArrayList<TMToken>(lineTokens.length / 2);
+		for (int i = 0; i < lineTokens.length; i += 2) {
+			result.add(new TMToken(lineTokens[i], tokenTypes.get(lineTokens[i + 1])));
+		}
+		return result;
+	}
+
+	/**
+	 * @return <code>null</code> if the line does not exist or has not yet been tokenized, otherwise a copy of the packed
+	 *         tokens of the line
+	 */
+	synchronized int @Nullable [] getTokensPacked(final int lineIndex) {
+		if (lineIndex < 0 || lineIndex >= size())
+			return null;
+		final var lineTokens = tokens[slot(lineIndex)];
+		return lineTokens == null ? null : lineTokens.clone();
+	}
+
+	synchronized String getTokenType(final int tokenTypeId) {
+		return tokenTypes.get(tokenTypeId);
+	}
+
+	/**
+	 * Stores the tokenization result of the given line.
+	 */
+	synchronized void setTokens(final int lineIndex, final List<TMToken> lineTokens, final IStateStack endState) {
+		final int slot = slot(lineIndex);
+		final var packed = new int[lineTokens.size() * 2];
+		int i = 0;
+		for (final var token : lineTokens) {
+			packed[i++] = token.startIndex;
+			packed[i++] = getOrCreateTokenTypeId(token.type);
+		}
+		tokens[slot] = packed;
+		endStates[slot] = stateTable.intern(endState);
+	}
+
+	private int getOrCreateTokenTypeId(final String tokenType) {
+		return tokenTypeIds.computeIfAbsent(tokenType, type -> {
+			tokenTypes.add(type);
+			return tokenTypes.size() - 1;
+		});
+	}
+
+	/**
+	 * Inserts the given number of not yet tokenized lines at the given index.
+	 */
+	synchronized void insertLines(final int lineIndex, final int count) {
+		Objects.checkIndex(lineIndex, size() + 1);
+		ensureGapSize(count);
+		moveGap(lineIndex);
+		// slots of the gap already represent lines that are not yet tokenized
+		gapStart += count;
+	}
+
+	synchronized void removeLines(final int lineIndex, final int count) {
+		Objects.checkFromIndexSize(lineIndex, count, size());
+		moveGap(lineIndex);
+		Arrays.fill(startStates, gapEnd, gapEnd + count, StateStack.NULL);
+		Arrays.fill(endStates, gapEnd, gapEnd + count, null);
+		Arrays.fill(tokens, gapEnd, gapEnd + count, null);
+		gapEnd += count;
+	}
+
+	/**
+	 * Resets the tokenization state of the given lines.
+	 */
+	synchronized void resetLines(final int lineIndex, final int count) {
+		Objects.checkFromIndexSize(lineIndex, count, size());
+		for (int i = lineIndex, end = lineIndex + count; i < end; i++) {
+			final int slot = slot(i);
+			startStates[slot] = StateStack.NULL;
+			endStates[slot] = null;
+			tokens[slot] = null;
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		final var sb = new StringBuilder("[");
+		for (int i = 0, size = size(); i < size; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(i).append(":{startState=").append(startStates[slot(i)]) //
+					.append(", tokens=").append(getTokens(i)).append('}');
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -29,8 +29,6 @@
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.grammar.IStateStack;
-import org.eclipse.tm4e.core.internal.grammar.StateStack;
-import org.eclipse.tm4e.core.internal.utils.MoreCollections;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
 
 /**
@@ -48,6 +46,9 @@
  */
 public abstract class TMModel implements ITMModel {
 
+	private record VisibleRange(int startLineIndex, int endLineIndex) {
+	}
+
 	private static final class Edit {
 		final int lineIndex;
 		final int replacedCount;
@@ -65,26 +66,6 @@ public String toString() {
 		}
 	}
 
-	/** package visibility for tests **/
-	static final class LineTokens {
-		volatile IStateStack startState = StateStack.NULL;
-		@Nullable
-		IStateStack endState;
-		@Nullable
-		volatile List<TMToken> tokens;
-
-		void reset() {
-			startState = StateStack.NULL;
-			endState = null;
-			tokens = null;
-		}
-
-		@Override
-		public String toString() {
-			return "{startState=" + startState + ", tokens=" + tokens + '}';
-		}
-	}
-
 	private static final Logger LOGGER = System.getLogger(TMModel.class.getName());
 
 	/** The TextMate grammar to use to tokenize lines of the attached document **/
@@ -99,14 +80,15 @@ public String toString() {
 	private TMTokenizationSupport tokenizer = lazyNonNull();
 
 	/** package visibility for tests **/
-	final ArrayList<LineTokens> lines;
-	final Object linesWriteLock;
+	final LineTokensStore lines;
 
 	private final BlockingQueue<Edit> edits = new LinkedBlockingQueue<>();
 
+	/** The lines currently shown to the user, which are tokenized with priority **/
+	private volatile @Nullable VisibleRange visibleRange;
+
 	protected TMModel(final int initialNumberOfLines) {
-		lines = new ArrayList<>(Math.max(10, initialNumberOfLines));
-		linesWriteLock = lines;
+		lines = new LineTokensStore(Math.max(10, initialNumberOfLines));
 		onLinesReplaced(0, 0, initialNumberOfLines);
 	}
 
@@ -178,14 +160,27 @@ public void run() {
 
 		private int firstLineToRevalidate = -1;
 
+		/**
+		 * Index of the last line whose tokens may be outdated. The lines after it have tokens that are consistent with the
+		 * end state of their previous line, so revalidation can stop after this line as soon as a line's end state does
+		 * not change.
+		 */
+		private int lastLineToRevalidate = -1;
+
 		private boolean isAllTokensAreValid() {
 			return firstLineToRevalidate == -1;
 		}
 
 		private void setAllTokensAreValid() {
 			firstLineToRevalidate = -1;
+			lastLineToRevalidate = -1;
 		}
 
+		/**
+		 * The visible range that was taken into account by the current run of {@link #revalidateTokens()}.
+		 */
+		private @Nullable VisibleRange revalidatedVisibleRange;
+
 		/**
 		 * revalidates tokens of lines starting at {@link #firstLineToRevalidate} until all lines are processed or new {@link Edit} arrive.
 		 *
@@ -197,13 +192,17 @@ private void revalidateTokens() throws InterruptedException {
 			if (DEBUG_LOGGING)
 				logDebug("(%d)", startLineNumber);
 
+			final var visibleRange = revalidatedVisibleRange = TMModel.this.visibleRange;
+			if (visibleRange != null && visibleRange.startLineIndex > startLineIndex) {
+				tokenizeVisibleLines(visibleRange);
+			}
+
 			long startTime = System.currentTimeMillis();
 			var changedRanges = new ArrayList<Range>();
-			Range prevRange = null;
-			var prevLineTokens = getLineTokensOrNull(startLineIndex - 1);
 
 			final int linesCount = lines.size();
 			int currLineIndex = -1;
+			boolean isConverged = false;
 
 			// iterate over all lines from startLineIndex to end of file to check if (re)tokenization is required
 			for (currLineIndex = startLineIndex; currLineIndex < linesCount; currLineIndex++) {
@@ -218,59 +217,54 @@ private void revalidateTokens() throws InterruptedException {
 					break;
 				}
 
-				final var currLineTokens = lines.get(currLineIndex);
+				// check if lines further down the document became visible -> if so, restart to tokenize them first
+				if (revalidatedVisibleRange != TMModel.this.visibleRange) {
+					final var newVisibleRange = TMModel.this.visibleRange;
+					if (newVisibleRange != null && newVisibleRange.startLineIndex > currLineIndex) {
+						break;
+					}
+					revalidatedVisibleRange = newVisibleRange;
+				}
 
 				if (currLineIndex == 0) {
-					currLineTokens.startState = tokenizer.getInitialState();
+					lines.setStartState(0, tokenizer.getInitialState());
 				}
 
 				final int currLineNumber = currLineIndex + 1;
 
 				// check if (re)tokenization is required
-				if (prevLineTokens != null) {
-					if (currLineTokens.tokens != null && currLineTokens.startState.equals(prevLineTokens.endState)) {
+				if (currLineIndex > 0) {
+					final var prevEndState = lines.getEndState(currLineIndex - 1);
+					if (lines.hasTokens(currLineIndex) && lines.getStartState(currLineIndex).equals(prevEndState)) {
 						// has matching start and has tokens ==> is up to date
 						if (DEBUG_LOGGING)
 							logDebug("(%d) >> DONE - tokens of line %d are up-to-date", startLineNumber, currLineNumber);
 						firstLineToRevalidate = currLineIndex + 1;
-						prevLineTokens = currLineTokens;
+						if (currLineIndex > lastLineToRevalidate) {
+							// all following lines are up to date too
+							isConverged = true;
+							break;
+						}
 						continue;
 					}
-					if (prevLineTokens.endState != null)
-						currLineTokens.startState = prevLineTokens.endState;
+					if (prevEndState != null)
+						lines.setStartState(currLineIndex, prevEndState);
 				}
 
 				// (re)tokenize the line
 				if (DEBUG_LOGGING)
 					logDebug("(%d) >> tokenizing line %d...", startLineNumber, currLineNumber);
-				TokenizationResult r;
-				try {
-					final String lineText = getLineText(currLineIndex);
-					r = tokenizer.tokenize(lineText, currLineTokens.startState, 0, MAX_TIME_PER_LINE_TOKENIZATION);
-				} catch (final Exception ex) {
-					LOGGER.log(ERROR, ex.toString());
-					r = new TokenizationResult(new ArrayList<>(1), 0, currLineTokens.startState, true);
-				}
-
-				// check if complete line was tokenized
-				if (r.stoppedEarly) {
-					// treat the rest of the line as one default token
-					r.tokens.add(new TMToken(r.actualStopOffset, ""));
-					// Use the line's starting state as end state in case of incomplete tokenization
-					r.endState = currLineTokens.startState;
-				}
-
-				currLineTokens.endState = r.endState;
-				currLineTokens.tokens = r.tokens;
-				prevLineTokens = currLineTokens;
+				final var oldEndState = lines.getEndState(currLineIndex);
+				final var endState = tokenizeLine(currLineIndex, lines.getStartState(currLineIndex));
 				firstLineToRevalidate = currLineIndex + 1;
+				addChangedLine(changedRanges, currLineNumber);
 
-				// add the line number to the changed ranges
-				if (prevRange != null && prevRange.toLineNumber == currLineNumber - 1) {
-					prevRange.toLineNumber = currLineNumber; // extend range from previous line change
-				} else {
-					prevRange = new Range(currLineNumber);
-					changedRanges.add(prevRange); // insert new range
+				if (currLineIndex >= lastLineToRevalidate && endState.equals(oldEndState)) {
+					// the following lines were tokenized based on the same state ==> they are up to date
+					if (DEBUG_LOGGING)
+						logDebug("(%d) >> DONE - end state of line %d did not change", startLineNumber, currLineNumber);
+					isConverged = true;
+					break;
 				}
 
 				// if MAX_TIME_PER_MULTI_LINE_VALIDATIONS reached, notify listeners about line changes
@@ -279,7 +273,6 @@ private void revalidateTokens() throws InterruptedException {
 						logDebug("(%d) >> changedRanges: %s", startLineNumber, changedRanges);
 					listeners.dispatchEvent(changedRanges, TMModel.this);
 					changedRanges = new ArrayList<>();
-					prevRange = null;
 					startTime = System.currentTimeMillis();
 				}
 			}
@@ -289,7 +282,92 @@ private void revalidateTokens() throws InterruptedException {
 				logDebug("(%d) >> changedRanges: %s", startLineNumber, changedRanges);
 			listeners.dispatchEvent(changedRanges, TMModel.this);
 
-			setAllTokensAreValid();
+			// only if the loop was not aborted, otherwise the lines not yet processed would be considered valid
+			if (isConverged || currLineIndex >= linesCount) {
+				setAllTokensAreValid();
+			} else {
+				// the lines from the one where the loop was aborted onwards may have been tokenized based on an outdated
+				// state, so revalidation must not stop before reaching them
+				lastLineToRevalidate = Math.max(lastLineToRevalidate, firstLineToRevalidate);
+			}
+		}
+
+		/**
+		 * Tokenizes the not yet tokenized lines of the given visible range ahead of the lines above it.
+		 * <p>
+		 * The exact start state of the first visible line is only known once all lines above are tokenized. The visible
+		 * lines are therefore tokenized starting with the end state of the nearest line above that has one, which is
+		 * correct in most cases. {@link #revalidateTokens()} later verifies the start states and retokenizes the lines
+		 * where the approximation was wrong.
+		 */
+		private void tokenizeVisibleLines(final VisibleRange visibleRange) {
+			if (DEBUG_LOGGING)
+				logDebug("(%s)", visibleRange);
+
+			final var changedRanges = new ArrayList<Range>();
+			@Nullable
+			IStateStack startState = null;
+			for (int lineIndex = visibleRange.startLineIndex,
+					endLineIndex = Math.min(visibleRange.endLineIndex, lines.size() - 1); lineIndex <= endLineIndex; lineIndex++) {
+				if (isInterrupted() || !edits.isEmpty())
+					break;
+
+				if (lines.hasTokens(lineIndex)) {
+					startState = null;
+					continue;
+				}
+
+				if (startState == null) {
+					startState = lines.findEndStateAbove(lineIndex);
+					if (startState == null) {
+						startState = tokenizer.getInitialState();
+					}
+				}
+				lines.setStartState(lineIndex, startState);
+				startState = tokenizeLine(lineIndex, startState);
+				addChangedLine(changedRanges, lineIndex + 1);
+				lastLineToRevalidate = Math.max(lastLineToRevalidate, lineIndex);
+			}
+			listeners.dispatchEvent(changedRanges, TMModel.this);
+		}
+
+		/**
+		 * Tokenizes the given line and stores the result.
+		 *
+		 * @return the end state of the line
+		 */
+		private IStateStack tokenizeLine(final int lineIndex, final IStateStack startState) {
+			TokenizationResult r;
+			try {
+				final String lineText = getLineText(lineIndex);
+				r = tokenizer.tokenize(lineText, startState, 0, MAX_TIME_PER_LINE_TOKENIZATION);
+			} catch (final Exception ex) {
+				LOGGER.log(ERROR, ex.toString());
+				r = new TokenizationResult(new ArrayList<>(1), 0, startState, true);
+			}
+
+			// check if complete line was tokenized
+			if (r.stoppedEarly) {
+				// treat the rest of the line as one default token
+				r.tokens.add(new TMToken(r.actualStopOffset, ""));
+				// Use the line's starting state as end state in case of incomplete tokenization
+				r.endState = startState;
+			}
+
+			lines.setTokens(lineIndex, r.tokens, r.endState);
+			return r.endState;
+		}
+
+		/**
+		 * Adds the given line number to the changed ranges by extending the last range if possible.
+		 */
+		private void addChangedLine(final List<Range> changedRanges, final int lineNumber) {
+			final var lastRange = changedRanges.isEmpty() ? null : changedRanges.get(changedRanges.size() - 1);
+			if (lastRange != null && lastRange.toLineNumber == lineNumber - 1) {
+				lastRange.toLineNumber = lineNumber; // extend range from previous line change
+			} else {
+				changedRanges.add(new Range(lineNumber)); // insert new range
+			}
 		}
 
 		private void applyEdit(final Edit edit) {
@@ -297,63 +375,55 @@ private void applyEdit(final Edit edit) {
 				logDebug("(%s)", edit);
 
 			final var lineIndex = edit.lineIndex;
-			if (isAllTokensAreValid() || lineIndex < firstLineToRevalidate)
+			final var lastLineOfEdit = lineIndex + Math.max(edit.replacementCount, 1) - 1;
+			if (isAllTokensAreValid()) {
 				firstLineToRevalidate = lineIndex;
+				lastLineToRevalidate = lastLineOfEdit;
+			} else {
+				if (lineIndex < firstLineToRevalidate)
+					firstLineToRevalidate = lineIndex;
+				if (lastLineToRevalidate >= lineIndex + edit.replacedCount)
+					lastLineToRevalidate += edit.replacementCount - edit.replacedCount; // shift by the number of added/removed lines
+				lastLineToRevalidate = Math.max(lastLineToRevalidate, lastLineOfEdit);
+			}
 
 			// check if single line update
 			if (edit.replacedCount == 1 && edit.replacementCount == 1) {
-				final var firstLineOfEdit = getLineTokensOrNull(lineIndex);
-				if (firstLineOfEdit == null)
-					return;
-				// reuse the LineToken instance by resetting it's state
-				firstLineOfEdit.reset();
+				if (lineIndex > -1 && lineIndex < lines.size()) {
+					lines.resetLines(lineIndex, 1);
+				}
 				return;
 			}
 
 			final int replacedCount = Math.min(edit.replacedCount, lines.size() - lineIndex);
 			final var lineDiff = edit.replacementCount - edit.replacedCount;
-			final var editRange = lines.subList(lineIndex, lineIndex + replacedCount);
 
 			// (1) number of lines not changed by edit
 			if (lineDiff == 0) {
 				// reset tokenization state of affected lines
-				editRange.forEach(LineTokens::reset);
+				lines.resetLines(lineIndex, replacedCount);
 				return;
 			}
 
 			// (2) new lines added by edit
 			if (lineDiff > 0) {
 				// reset tokenization state of affected lines
-				editRange.forEach(LineTokens::reset);
+				lines.resetLines(lineIndex, replacedCount);
 
 				// add extra lines
-				final var additionalLines = new ArrayList<LineTokens>(lineDiff);
-				for (int i = 0; i < lineDiff; i++) {
-					additionalLines.add(new LineTokens());
-				}
-				synchronized (linesWriteLock) {
-					editRange.addAll(additionalLines);
-				}
+				lines.insertLines(lineIndex + replacedCount, lineDiff);
 				return;
 			}
 
 			// (3) lines removed by edit
 			/* if (lineDiff < 0) */ {
-				synchronized (linesWriteLock) {
-					editRange.subList(0, -lineDiff).clear();
-				}
+				lines.removeLines(lineIndex, -lineDiff);
 				// reset tokenization state of the other affected lines
-				editRange.forEach(LineTokens::reset);
+				lines.resetLines(lineIndex, replacedCount + lineDiff);
 			}
 		}
 	}
 
-	private @Nullable LineTokens getLineTokensOrNull(final int index) {
-		return index > -1 && index < lines.size()
-				? lines.get(index)
-				: null;
-	}
-
 	@Override
 	public BackgroundTokenizationState getBackgroundTokenizationState() {
 		return tokenizerThreadHasWork ? BackgroundTokenizationState.IN_PROGRESS : BackgroundTokenizationState.COMPLETED;
@@ -369,16 +439,36 @@ public synchronized void setGrammar(final IGrammar grammar) {
 		if (!Objects.equals(grammar, this.grammar)) {
 			this.grammar = grammar;
 			final var tokenizer = this.tokenizer = new TMTokenizationSupport(grammar);
-			synchronized (linesWriteLock) {
-				if (!lines.isEmpty()) {
-					lines.get(0).startState = tokenizer.getInitialState();
+			synchronized (lines) {
+				final int linesCount = lines.size();
+				if (linesCount > 0) {
+					lines.setStartState(0, tokenizer.getInitialState());
 				}
-				onLinesReplaced(0, 1, 1);
+				// states of different grammars are not comparable, hence all lines need to be retokenized
+				onLinesReplaced(0, linesCount, linesCount);
 			}
 			startTokenizerThread();
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The visible lines are tokenized ahead of the lines above them with an approximated start state. Their tokens are
+	 * verified and corrected if necessary once the lines above are tokenized.
+	 */
+	@Override
+	public void setVisibleRange(final int startLineIndex, final int endLineIndex) {
+		final var visibleRange = this.visibleRange;
+		if (startLineIndex < 0 || endLineIndex < startLineIndex) {
+			this.visibleRange = null;
+		} else if (visibleRange == null
+				|| visibleRange.startLineIndex != startLineIndex
+				|| visibleRange.endLineIndex != endLineIndex) {
+			this.visibleRange = new VisibleRange(startLineIndex, endLineIndex);
+		}
+	}
+
 	/**
 	 * Informs the model about lines being replaced at the given index.
 	 * <p>
@@ -449,26 +539,29 @@ private synchronized void stopTokenizerThread() {
 
 	@Override
 	public int getNumberOfLines() {
-		synchronized (linesWriteLock) {
-			return lines.size();
-		}
+		return lines.size();
 	}
 
 	@Override
 	public @Nullable List<TMToken> getLineTokens(final int lineIndex) {
-		synchronized (linesWriteLock) {
-			final var lineTokens = getLineTokensOrNull(lineIndex);
-			return lineTokens == null ? null : lineTokens.tokens;
-		}
+		return lines.getTokens(lineIndex);
+	}
+
+	@Override
+	public int @Nullable [] getLineTokensPacked(final int lineIndex) {
+		return lines.getTokensPacked(lineIndex);
+	}
+
+	@Override
+	public String getTokenType(final int tokenTypeId) {
+		return lines.getTokenType(tokenTypeId);
 	}
 
 	@Override
 	public String toString() {
 		return StringUtils.toString(this, sb -> {
 			sb.append("grammar=").append(grammar);
-			synchronized (linesWriteLock) {
-				sb.append(", lines=").append(MoreCollections.toStringWithIndex(lines));
-			}
+			sb.append(", lines=").append(lines);
 		});
 	}
 }
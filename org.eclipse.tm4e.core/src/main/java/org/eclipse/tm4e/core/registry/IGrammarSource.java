@@ -14,12 +14,16 @@
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarSnapshot;
 
 public interface IGrammarSource {
 
@@ -57,6 +61,16 @@ public Reader getReader() throws IOException {
 				return Files.newBufferedReader(file, charset == null ? StandardCharsets.UTF_8 : charset);
 			}
 
+			@Override
+			public @Nullable ByteBuffer getSnapshot() throws IOException {
+				final var snapshot = file.resolveSibling(file.getFileName() + RawGrammarSnapshot.FILE_SUFFIX);
+				if (!Files.isRegularFile(snapshot))
+					return null;
+				try (var channel = FileChannel.open(snapshot)) {
+					return channel.map(MapMode.READ_ONLY, 0, channel.size());
+				}
+			}
+
 			@Override
 			public String getFilePath() {
 				return filePath;
@@ -91,6 +105,13 @@ public Reader getReader() throws IOException {
 						charset == null ? StandardCharsets.UTF_8 : charset));
 			}
 
+			@Override
+			public @Nullable ByteBuffer getSnapshot() throws IOException {
+				try (var in = clazz.getResourceAsStream(resourceName + RawGrammarSnapshot.FILE_SUFFIX)) {
+					return in == null ? null : ByteBuffer.wrap(in.readAllBytes());
+				}
+			}
+
 			@Override
 			public String getFilePath() {
 				return resourceName;
@@ -130,4 +151,15 @@ default ContentType getContentType() {
 	String getFilePath();
 
 	Reader getReader() throws IOException;
+
+	/**
+	 * Returns the binary snapshot of the parsed grammar, which is read instead of parsing the content of
+	 * {@link #getReader()} if present and created from the current content of the grammar. Snapshots of file and
+	 * resource grammars are looked up next to the grammar with the additional file name suffix <code>.tmsnapshot</code>.
+	 *
+	 * @return the snapshot or <code>null</code> if the grammar has no snapshot
+	 */
+	default @Nullable ByteBuffer getSnapshot() throws IOException {
+		return null;
+	}
 }
@@ -48,4 +48,15 @@ default IGrammarSource getGrammarSource(@SuppressWarnings("unused") final String
 	default Collection<String> getInjections(@SuppressWarnings("unused") final String scopeName) {
 		return null;
 	}
+
+	/**
+	 * If <code>true</code>, the grammars included by a loaded grammar and its injection grammars are not loaded
+	 * together with it but when first needed, i.e. when the tokenizer first reaches an include of them, e.g. the first
+	 * fenced code block of a language in a Markdown document.
+	 *
+	 * @return <code>false</code> by default
+	 */
+	default boolean loadEmbeddedGrammarsOnDemand() {
+		return false;
+	}
 }
@@ -21,15 +21,20 @@
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.*;
 
 import java.lang.System.Logger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.TMException;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.internal.grammar.BalancedBracketSelectors;
 import org.eclipse.tm4e.core.internal.grammar.dependencies.ScopeDependencyProcessor;
+import org.eclipse.tm4e.core.internal.grammar.raw.IRawGrammar;
 import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarReader;
 import org.eclipse.tm4e.core.internal.registry.SyncRegistry;
 import org.eclipse.tm4e.core.internal.theme.Theme;
@@ -59,7 +64,8 @@ public Registry() {
 	public Registry(final IRegistryOptions options) {
 		this._options = options;
 
-		this._syncRegistry = new SyncRegistry(Theme.createFromRawTheme(options.getTheme(), options.getColorMap()));
+		this._syncRegistry = new SyncRegistry(Theme.createFromRawTheme(options.getTheme(), options.getColorMap()),
+				options.loadEmbeddedGrammarsOnDemand() ? this::_loadGrammarOnDemand : null);
 	}
 
 	/**
@@ -126,16 +132,21 @@ public IGrammar loadGrammar(final String initialScopeName) {
 	}
 
 	@Nullable
-	private IGrammar _loadGrammar(
+	private synchronized IGrammar _loadGrammar(
 			final String initialScopeName,
 			final int initialLanguage,
 			@Nullable final Map<String, Integer> embeddedLanguages,
 			@Nullable final Map<String, Integer> tokenTypes,
 			@Nullable final BalancedBracketSelectors balancedBracketSelectors) {
-		final var dependencyProcessor = new ScopeDependencyProcessor(this._syncRegistry, initialScopeName);
-		while (!dependencyProcessor.Q.isEmpty()) {
-			dependencyProcessor.Q.forEach(request -> this._loadSingleGrammar(request.scopeName));
-			dependencyProcessor.processQueue();
+		if (this._syncRegistry.isLoadingOnDemand()) {
+			// the dependencies are loaded by the grammar when first used, see _loadGrammarOnDemand
+			this._loadGrammars(List.of(initialScopeName));
+		} else {
+			final var dependencyProcessor = new ScopeDependencyProcessor(this._syncRegistry, initialScopeName);
+			while (!dependencyProcessor.Q.isEmpty()) {
+				this._loadGrammars(dependencyProcessor.Q.stream().map(request -> request.scopeName).toList());
+				dependencyProcessor.processQueue();
+			}
 		}
 
 		return this._grammarForScopeName(
@@ -146,24 +157,60 @@ private IGrammar _loadGrammar(
 				balancedBracketSelectors);
 	}
 
-	private void _loadSingleGrammar(final String scopeName) {
-		this._ensureGrammarCache.computeIfAbsent(scopeName, this::_doLoadSingleGrammar);
-	}
+	/**
+	 * Loads the grammars of one level of the dependency queue. The grammars are read and parsed in parallel on the
+	 * {@link ForkJoinPool#commonPool()}, e.g. the about 40 grammars embedded by Markdown. The grammar sources are
+	 * looked up and the grammars registered on the calling thread in queue order.
+	 */
+	private void _loadGrammars(final List<String> scopeNames) {
+		final var grammarSources = new LinkedHashMap<String, IGrammarSource>();
+		for (final var scopeName : scopeNames) {
+			if (this._ensureGrammarCache.containsKey(scopeName) || grammarSources.containsKey(scopeName))
+				continue;
+			final var grammarSource = this._options.getGrammarSource(scopeName);
+			if (grammarSource == null) {
+				LOGGER.log(WARNING, "No grammar source for scope [{0}]", scopeName);
+				this._ensureGrammarCache.put(scopeName, false);
+			} else {
+				grammarSources.put(scopeName, grammarSource);
+			}
+		}
 
-	private boolean _doLoadSingleGrammar(final String scopeName) {
-		final var grammarSource = this._options.getGrammarSource(scopeName);
-		if (grammarSource == null) {
-			LOGGER.log(WARNING, "No grammar source for scope [{0}]", scopeName);
-			return false;
+		final boolean parallel = grammarSources.size() > 1 && ForkJoinPool.getCommonPoolParallelism() > 1;
+		final var grammars = new ArrayList<CompletableFuture<@Nullable IRawGrammar>>(grammarSources.size());
+		grammarSources.forEach((scopeName, grammarSource) -> grammars.add(parallel
+				? CompletableFuture.supplyAsync(() -> _readGrammar(scopeName, grammarSource))
+				: CompletableFuture.completedFuture(_readGrammar(scopeName, grammarSource))));
+
+		int i = 0;
+		for (final var scopeName : grammarSources.keySet()) {
+			final var grammar = grammars.get(i++).join();
+			if (grammar != null) {
+				this._syncRegistry.addGrammar(grammar, this._options.getInjections(scopeName));
+			}
+			this._ensureGrammarCache.put(scopeName, grammar != null);
 		}
+	}
+
+	/**
+	 * Loads a grammar included by another grammar when first used, see
+	 * {@link IRegistryOptions#loadEmbeddedGrammarsOnDemand()}. Called by the grammars from any thread tokenizing a
+	 * document.
+	 */
+	@Nullable
+	private synchronized IRawGrammar _loadGrammarOnDemand(final String scopeName) {
+		this._loadGrammars(List.of(scopeName));
+		return this._syncRegistry.lookup(scopeName);
+	}
+
+	@Nullable
+	private static IRawGrammar _readGrammar(final String scopeName, final IGrammarSource grammarSource) {
 		try {
-			final var grammar = RawGrammarReader.readGrammar(grammarSource);
-			this._syncRegistry.addGrammar(grammar, this._options.getInjections(scopeName));
+			return RawGrammarReader.readGrammar(grammarSource);
 		} catch (final Exception ex) {
 			LOGGER.log(ERROR, "Loading grammar for scope [{0}] failed: {1}", scopeName, ex.getMessage(), ex);
-			return false;
+			return null;
 		}
-		return true;
 	}
 
 	public IGrammar addGrammar(final IGrammarSource source) throws TMException {
@@ -11,6 +11,7 @@
  */
 package org.eclipse.tm4e.core.grammar;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 import static org.eclipse.tm4e.core.registry.IGrammarSource.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,11 +20,20 @@
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarReader;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExpCache;
+import org.eclipse.tm4e.core.internal.registry.SyncRegistry;
+import org.eclipse.tm4e.core.internal.theme.Theme;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
 import org.eclipse.tm4e.core.registry.Registry;
 import org.junit.jupiter.api.Assertions;
@@ -230,6 +240,83 @@ void testTokenizeTypeScriptFile() throws Exception {
 		}
 	}
 
+	@Test
+	void testTokenizeTypeScriptFileConcurrently() throws Exception {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		final List<String> expectedTokens;
+		try (var resource = Data.class.getResourceAsStream("raytracer_tokens.txt")) {
+			expectedTokens = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8)).lines().toList();
+		}
+		final List<String> lines;
+		try (var resource = Data.class.getResourceAsStream("raytracer.ts")) {
+			lines = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8)).lines().toList();
+		}
+
+		// all threads use the same, not yet compiled grammar instance
+		final var threads = 8;
+		final var executor = Executors.newFixedThreadPool(threads);
+		try {
+			final var startSignal = new CountDownLatch(1);
+			final var results = new ArrayList<Future<List<String>>>();
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(() -> {
+					startSignal.await();
+					final var actualTokens = new ArrayList<String>();
+					IStateStack stateStack = null;
+					for (final var line : lines) {
+						final var lineTokens = grammar.tokenizeLine(line, stateStack, null);
+						stateStack = lineTokens.getRuleStack();
+						for (final var token : lineTokens.getTokens()) {
+							actualTokens.add("Token from " + token.getStartIndex() + " to " + token.getEndIndex()
+									+ " with scopes " + token.getScopes());
+						}
+					}
+					return actualTokens;
+				}));
+			}
+			startSignal.countDown();
+			for (final var result : results) {
+				assertEquals(expectedTokens, result.get(30, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testTokenizeDocument() throws Exception {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		final List<String> sample;
+		try (var resource = Data.class.getResourceAsStream("raytracer.ts")) {
+			sample = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8)).lines().toList();
+		}
+
+		// large document with a multi-line comment spanning chunk boundaries
+		final var lines = new ArrayList<String>();
+		for (int i = 0; i < 20; i++) {
+			lines.addAll(sample);
+		}
+		lines.add(lines.size() / 3, "/*");
+		lines.add(2 * lines.size() / 3, "*/");
+
+		final var results = grammar.tokenizeDocument(lines);
+		final var binaryResults = grammar.tokenizeDocument2(lines);
+		assertEquals(lines.size(), results.size());
+		assertEquals(lines.size(), binaryResults.size());
+
+		IStateStack stateStack = null;
+		for (int i = 0; i < lines.size(); i++) {
+			final var expected = grammar.tokenizeLine(lines.get(i), stateStack, null);
+			final var expectedBinary = grammar.tokenizeLine2(lines.get(i), stateStack, null);
+			stateStack = expected.getRuleStack();
+			assertEquals(Arrays.toString(expected.getTokens()), Arrays.toString(results.get(i).getTokens()), "line " + i);
+			assertArrayEquals(expectedBinary.getTokens(), binaryResults.get(i).getTokens(), "line " + i);
+			assertEquals(stateStack, results.get(i).getRuleStack(), "line " + i);
+		}
+	}
+
 	@Test
 	void testTokenizeWithTimeout() throws IOException {
 		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
@@ -248,6 +335,69 @@ void testTokenizeWithTimeout() throws IOException {
 		}
 	}
 
+	@Test
+	void testTokenizeWithTimeoutInRetokenizedCapture() {
+		final var grammar = new Registry().addGrammar(fromString(IGrammarSource.ContentType.JSON, """
+			{
+				"scopeName": "source.test",
+				"patterns": [{
+					"match": "<(a+)>",
+					"captures": {
+						"1": { "patterns": [{ "match": "(a|aa)*(?!.)(?<!a)" }] }
+					}
+				}]
+			}"""));
+		// compiles the rules so the time limit only applies to the searches
+		final var warmUpResult = grammar.tokenizeLine("<a>");
+		assertEquals(3, warmUpResult.getTokens().length);
+
+		final var line = "<" + "a".repeat(40) + ">";
+		final var result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> grammar.tokenizeLine(line, null, Duration.ofMillis(100)));
+		assertTrue(result.isStoppedEarly());
+		// the rule of the interrupted match must not remain on the stack
+		assertEquals(warmUpResult.getRuleStack(), result.getRuleStack());
+	}
+
+	@Test
+	void testPrecompile() {
+		final var line = "class Foo { add(a: number, b: number) { return a + b; } }";
+
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		grammar.precompile();
+		grammar.precompile();
+
+		final long missCount = OnigRegExpCache.getStats().missCount();
+		final var result = grammar.tokenizeLine(line);
+		assertEquals(missCount, OnigRegExpCache.getStats().missCount(), "no regular expressions compiled on use");
+
+		final var expected = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"))
+				.tokenizeLine(line);
+		assertEquals(Arrays.toString(expected.getTokens()), Arrays.toString(result.getTokens()));
+	}
+
+	@Test
+	void testRawGrammarIsSharedUnmodified() throws Exception {
+		final var line = "function add(a,b) { return a+b; }";
+
+		final var rawGrammar = RawGrammarReader.readGrammar(fromResource(Data.class, "JavaScript.tmLanguage.json"));
+		final var registry = new SyncRegistry(Theme.createFromRawTheme(null, null));
+		registry.addGrammar(rawGrammar, null);
+		registry.addGrammar(RawGrammarReader.readGrammar(fromString(IGrammarSource.ContentType.JSON, """
+			{ "scopeName": "source.embedding", "patterns": [ { "include": "source.js" } ] }""")), null);
+
+		final var grammar = castNonNull(registry.grammarForScopeName("source.js", 0, null, null, null));
+		final var embeddingGrammar = castNonNull(registry.grammarForScopeName("source.embedding", 0, null, null, null));
+		final var tokens = grammar.tokenizeLine(line).getTokens();
+		final var embeddedTokens = embeddingGrammar.tokenizeLine(line).getTokens();
+		assertEquals(tokens.length, embeddedTokens.length);
+		for (int i = 0; i < tokens.length; i++) {
+			assertEquals(tokens[i].getEndIndex(), embeddedTokens[i].getEndIndex());
+		}
+
+		assertEquals(RawGrammarReader.readGrammar(fromResource(Data.class, "JavaScript.tmLanguage.json")), rawGrammar);
+	}
+
 	// TODO see https://github.com/microsoft/vscode-textmate/issues/173
 	@Disabled
 	@Test
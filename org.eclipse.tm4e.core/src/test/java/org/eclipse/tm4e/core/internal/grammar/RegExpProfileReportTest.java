@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExpProfiler;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+class RegExpProfileReportTest {
+
+	@Test
+	void testRegExpProfileReport() {
+		final var grammar = (Grammar) new Registry()
+				.addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		OnigRegExpProfiler.reset();
+		OnigRegExpProfiler.setEnabled(true);
+		try {
+			grammar.tokenizeLine("function add(a,b) { return a+b; }");
+		} finally {
+			OnigRegExpProfiler.setEnabled(false);
+		}
+
+		final var report = grammar.getRegExpProfileReport();
+		final var entries = report.getEntries();
+		assertFalse(entries.isEmpty());
+		for (int i = 0; i < entries.size(); i++) {
+			final var stats = entries.get(i).stats();
+			assertTrue(stats.calls() > 0);
+			assertTrue(stats.matches() <= stats.calls());
+			assertTrue(stats.maxNanos() <= stats.totalNanos());
+			assertFalse(entries.get(i).rules().isEmpty());
+			if (i > 0) {
+				assertTrue(entries.get(i - 1).stats().totalNanos() >= stats.totalNanos());
+			}
+		}
+		assertTrue(entries.stream().anyMatch(e -> e.rules().stream()
+				.anyMatch(r -> "keyword.control.js".equals(r.name()))));
+
+		final var json = report.toString();
+		assertTrue(json.startsWith("["));
+		assertTrue(json.contains("\"totalNanos\""));
+		assertTrue(json.contains("\"keyword.control.js\""));
+
+		// nothing is recorded while the profiler is disabled
+		OnigRegExpProfiler.reset();
+		grammar.tokenizeLine("function sub(a,b) { return a-b; }");
+		assertTrue(OnigRegExpProfiler.getStats().isEmpty());
+		assertTrue(grammar.getRegExpProfileReport().getEntries().isEmpty());
+	}
+
+	@Test
+	void testProfileQuarantinedPattern() {
+		// differs from the pattern of GrammarTest, as the quarantine of a pattern applies to all grammars
+		final var pattern = "(aa|a)*(?!.)(?<!a)";
+		final var grammar = (Grammar) new Registry().addGrammar(IGrammarSource.fromString(IGrammarSource.ContentType.JSON, """
+			{
+				"scopeName": "source.test",
+				"patterns": [{ "match": "(aa|a)*(?!.)(?<!a)", "name": "slow.test" }]
+			}"""));
+		// compiles the rules so the time limit only applies to the searches
+		grammar.tokenizeLine("b");
+
+		OnigRegExpProfiler.reset();
+		OnigRegExpProfiler.setEnabled(true);
+		try {
+			final var result = grammar.tokenizeLine("a".repeat(40), null, Duration.ofMillis(100));
+			assertTrue(result.isStoppedEarly());
+		} finally {
+			OnigRegExpProfiler.setEnabled(false);
+		}
+
+		final var stats = OnigRegExpProfiler.getStats().stream()
+				.filter(s -> pattern.equals(s.pattern()))
+				.findFirst().orElseThrow();
+		assertEquals(1, stats.calls());
+		assertEquals(0, stats.matches());
+		assertTrue(stats.maxNanos() >= Duration.ofMillis(100).toNanos());
+
+		final var entries = grammar.getRegExpProfileReport().getEntries();
+		assertTrue(entries.stream().anyMatch(e -> pattern.equals(e.stats().pattern())
+				&& e.rules().stream().anyMatch(r -> "slow.test".equals(r.name()))));
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ScopeStackTest {
+
+	@Test
+	void testGetSegments() {
+		final var root = ScopeStack.from("source.ts");
+		final var child = root.push("meta.class.ts");
+		final var grandChild = child.push("meta.method.ts").push("string.quoted.ts");
+
+		assertEquals(List.of("source.ts"), root.getSegments());
+		// computed based on the already cached segments of the root
+		assertEquals(List.of("source.ts", "meta.class.ts", "meta.method.ts", "string.quoted.ts"), grandChild.getSegments());
+		assertEquals(List.of("source.ts", "meta.class.ts"), child.getSegments());
+
+		// segments are cached and immutable
+		assertSame(grandChild.getSegments(), grandChild.getSegments());
+		assertThrows(UnsupportedOperationException.class, () -> child.getSegments().add("foo"));
+	}
+
+	@Test
+	void testPushReusesChildren() {
+		final var root = ScopeStack.from("source.ts");
+		final var child = root.push("meta.class.ts");
+		assertSame(child, root.push("meta.class.ts"));
+		assertNotSame(child, root.push("meta.method.ts"));
+
+		// equality and hash code do not depend on the identity of the nodes
+		final var otherChild = ScopeStack.from("source.ts", "meta.class.ts");
+		assertNotSame(child, otherChild);
+		assertEquals(child, otherChild);
+		assertEquals(child.hashCode(), otherChild.hashCode());
+		assertNotEquals(child, ScopeStack.from("source.js", "meta.class.ts"));
+		assertNotEquals(child, root);
+	}
+}
@@ -2,8 +2,13 @@
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Duration;
+
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
+import org.eclipse.tm4e.core.grammar.IStateStack;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IGrammarSource.ContentType;
 import org.eclipse.tm4e.core.registry.Registry;
 import org.junit.jupiter.api.Test;
 
@@ -65,6 +70,23 @@ void testTokenizeLine2() throws Exception {
 		System.out.println("----------");
 	}
 
+	@Test
+	void testTokenizeLine2WithBuffer() throws Exception {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		final var buffer = new BinaryTokenBuffer(2);
+		IStateStack prevState = null;
+		for (final var lineText : new String[] { "function add(a,b)", "{ return a+b; }", "", "// comment" }) {
+			final var expected = grammar.tokenizeLine2(lineText, prevState, null);
+			final var actual = grammar.tokenizeLine2(lineText, prevState, null, buffer);
+			assertSame(buffer, actual.getTokens());
+			assertArrayEquals(expected.getTokens(), buffer.toArray());
+			assertEquals(expected.getTokens().length / 2, buffer.getTokenCount());
+			assertEquals(expected.getRuleStack(), actual.getRuleStack());
+			prevState = actual.getRuleStack();
+		}
+	}
+
 	@Test
 	void testTokenizeMultiByteLine() throws Exception {
 		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "c.tmLanguage.json"));
@@ -123,4 +145,35 @@ void testTokenizeMultiByteLine2() throws Exception {
 
 		System.out.println("----------");
 	}
+
+	/**
+	 * Tests that a regex with catastrophic backtracking is interrupted when the time limit expires and is not executed
+	 * anymore afterwards
+	 */
+	@Test
+	void testTokenizeLineWithCatastrophicRegex() {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromString(ContentType.JSON, """
+			{
+				"scopeName": "source.catastrophic",
+				"patterns": [
+					{ "match": "(\\\\w+ ?)+$", "name": "catastrophic" },
+					{ "match": "!", "name": "bang" }
+				]
+			}"""));
+		// compile the rules upfront so that the time limit is spent on the regex search only
+		assertFalse(grammar.tokenizeLine("!", null, Duration.ofMillis(200)).isStoppedEarly());
+
+		final var lineText = "x".repeat(40) + "!";
+
+		final long start = System.currentTimeMillis();
+		final var result = grammar.tokenizeLine(lineText, null, Duration.ofMillis(200));
+		assertTrue(result.isStoppedEarly());
+		assertTrue(System.currentTimeMillis() - start < 10_000);
+
+		final var result2 = grammar.tokenizeLine(lineText, null, Duration.ofMillis(200));
+		assertFalse(result2.isStoppedEarly());
+		final var tokens = result2.getTokens();
+		assertEquals(40, tokens[1].getStartIndex());
+		assertEquals("bang", tokens[1].getScopes().get(1));
+	}
 }
@@ -37,4 +37,12 @@ void testLoadDifferentPlistFormats() throws Exception {
 		final var grammarFromYAML = RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage.yaml"));
 		assertEquals(grammarFromJSON, grammarFromYAML);
 	}
+
+	@Test
+	void testJSONKeysAreInterned() throws Exception {
+		final var grammar = (RawGrammar) RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage.json"));
+		for (final String key : grammar.keySet()) {
+			assertSame(key.intern(), key);
+		}
+	}
 }
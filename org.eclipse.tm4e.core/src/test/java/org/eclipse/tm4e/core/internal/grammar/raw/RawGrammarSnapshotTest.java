@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RawGrammarSnapshotTest {
+
+	private static byte[] writeSnapshot(final IRawGrammar grammar, final String content) throws Exception {
+		final var out = new ByteArrayOutputStream();
+		RawGrammarSnapshot.write(grammar, content, out);
+		return out.toByteArray();
+	}
+
+	@Test
+	void testRoundTrip() throws Exception {
+		for (final var resourceName : new String[] { "JavaScript.tmLanguage", "Markdown.tmLanguage", "TypeScript.tmLanguage.json" }) {
+			final var source = IGrammarSource.fromResource(Data.class, resourceName);
+			final var content = RawGrammarReader.readContent(source);
+			final var grammar = RawGrammarReader.readGrammar(source);
+			final var snapshot = writeSnapshot(grammar, content);
+
+			final var grammarFromSnapshot = RawGrammarSnapshot.read(ByteBuffer.wrap(snapshot), content);
+			assertEquals(grammar, grammarFromSnapshot, resourceName);
+			assertArrayEquals(snapshot, writeSnapshot(grammarFromSnapshot, content));
+		}
+	}
+
+	@Test
+	void testCorruptSnapshot() throws Exception {
+		final var source = IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage.json");
+		final var content = RawGrammarReader.readContent(source);
+		final var snapshot = writeSnapshot(RawGrammarReader.readGrammar(source), content);
+
+		final var otherVersion = snapshot.clone();
+		otherVersion[7]++;
+		assertNull(RawGrammarSnapshot.read(ByteBuffer.wrap(otherVersion), content));
+
+		// snapshot of another content of the grammar
+		assertNull(RawGrammarSnapshot.read(ByteBuffer.wrap(snapshot), content.replace("\"name\"", "\"Name\"")));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> RawGrammarSnapshot.read(ByteBuffer.wrap(snapshot, 0, snapshot.length / 2), content));
+	}
+
+	@Test
+	void testReadGrammarFromSnapshot(@TempDir final Path dir) throws Exception {
+		final var grammarFile = dir.resolve("test.tmlanguage.json");
+		Files.writeString(grammarFile, """
+			{ "scopeName": "source.test", "patterns": [ { "match": "a", "name": "a.test" } ] }""");
+		final var snapshotFile = dir.resolve("test.tmlanguage.json" + RawGrammarSnapshot.FILE_SUFFIX);
+		RawGrammarSnapshot.main(dir.toString(), dir.toString());
+		assertTrue(Files.exists(snapshotFile));
+
+		// the snapshot is read instead of the grammar file
+		final var snapshot = Files.readAllBytes(snapshotFile);
+		final var grammarFromSnapshot = RawGrammarSnapshot.read(ByteBuffer.wrap(snapshot), Files.readString(grammarFile));
+		assertNotNull(grammarFromSnapshot);
+		grammarFromSnapshot.put("scopeName", "source.from-snapshot");
+		Files.write(snapshotFile, writeSnapshot(grammarFromSnapshot, Files.readString(grammarFile)));
+		var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromFile(grammarFile));
+		assertEquals("source.from-snapshot", grammar.getScopeName());
+
+		// a snapshot of a modified grammar file is ignored, regardless of the modification times
+		Files.writeString(grammarFile, """
+			{ "scopeName": "source.test", "patterns": [ { "match": "b", "name": "b.test" } ] }""");
+		Files.setLastModifiedTime(snapshotFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+		grammar = RawGrammarReader.readGrammar(IGrammarSource.fromFile(grammarFile));
+		assertEquals("source.test", grammar.getScopeName());
+		assertEquals("b", grammar.getPatterns().iterator().next().getMatch());
+	}
+
+	@Test
+	void testWriteSnapshotsToTargetDirectory(@TempDir final Path dir) throws Exception {
+		final var sourceDir = dir.resolve("source");
+		final var grammarFile = sourceDir.resolve("vb/asp-vb-net.tmlanguage.json");
+		Files.createDirectories(grammarFile.getParent());
+		Files.writeString(grammarFile, """
+			{ "scopeName": "source.asp.vb.net", "patterns": [ { "match": "a", "name": "a.test" } ] }""");
+		final var targetDir = dir.resolve("target");
+
+		RawGrammarSnapshot.main(sourceDir.toString(), targetDir.toString());
+		assertFalse(Files.exists(sourceDir.resolve("vb/asp-vb-net.tmlanguage.json" + RawGrammarSnapshot.FILE_SUFFIX)));
+		final var snapshot = Files.readAllBytes(targetDir.resolve("vb/asp-vb-net.tmlanguage.json" + RawGrammarSnapshot.FILE_SUFFIX));
+		final var grammar = RawGrammarSnapshot.read(ByteBuffer.wrap(snapshot), Files.readString(grammarFile));
+		assertNotNull(grammar);
+		assertEquals("source.asp.vb.net", grammar.getScopeName());
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OnigFirstByteSetTest {
+
+	@Test
+	void testFirstBytes() {
+		var set = OnigFirstByteSet.of("\\b(?:if|else)\\b");
+		assertNull(set);
+
+		set = OnigFirstByteSet.of("(?:if|else|while)\\b");
+		assertNotNull(set);
+		assertTrue(set.contains('i'));
+		assertTrue(set.contains('e'));
+		assertTrue(set.contains('w'));
+		assertFalse(set.contains('f'));
+
+		set = OnigFirstByteSet.of("[a-c_]+\\s*|\\d|\\.");
+		assertNotNull(set);
+		assertTrue(set.contains('a'));
+		assertTrue(set.contains('c'));
+		assertTrue(set.contains('_'));
+		assertTrue(set.contains('5'));
+		assertTrue(set.contains('.'));
+		assertFalse(set.contains('d'));
+
+		set = OnigFirstByteSet.of("[^\"\\\\]");
+		assertNotNull(set);
+		assertFalse(set.contains('"'));
+		assertFalse(set.contains('\\'));
+		assertTrue(set.contains('a'));
+		assertTrue(set.contains(0xD0));
+
+		set = OnigFirstByteSet.of("кошка");
+		assertNotNull(set);
+		assertTrue(set.contains("к".getBytes(UTF_8)[0] & 0xFF));
+		assertFalse(set.contains('k'));
+	}
+
+	@Test
+	void testUnsupportedPatterns() {
+		for (final var pattern : List.of(
+				"^foo", "\\Gfoo", "(?=foo)", "(?<=a)b", "(?i)foo", "(?i:foo)", "a?b", "a*b", "a{0,2}b", "(a|)b", "|a",
+				".", "\\w*", "\\p{Alpha}", "[[:alpha:]]", "[^\\w]", "\\1", "(?x) a # comment", "a(?x) b", "[abc")) {
+			assertNull(OnigFirstByteSet.of(pattern), pattern);
+		}
+	}
+
+	/**
+	 * Verifies that searches skipped by the prefilter would not have found a match.
+	 */
+	@Test
+	void testSkippedSearchesDoNotMatch() {
+		final var patterns = List.of(
+				"(?:if|else|while)\\b", "[a-c_]+\\s*|\\d|\\.", "[^\"\\\\]", "\"", "(\\/\\/).*$", "(?<name>ab)+c",
+				"(?>foo|bar)(?=\\()", "\\s+", "\\x41|\\u00e4", "кошка|\\}", "[\\]-]x");
+		final var lines = List.of(
+				"", "if (a) else b", "while { }", "\"string\\\"\"", "// comment", "ababc", "foo(bar)", "   ",
+				"A ä", "кошка}", "]x -x", "cab___  1.");
+		for (final var pattern : patterns) {
+			final var set = OnigFirstByteSet.of(pattern);
+			assertNotNull(set, pattern);
+			// the reference pattern is not prefiltered since it cannot be analyzed
+			final var reference = new OnigRegExp("(?:" + pattern + ")|(?!)");
+			for (final var line : lines) {
+				final var str = OnigString.of(line);
+				for (int i = 0; i <= str.bytesCount; i++) {
+					if (!set.canMatch(str, i)) {
+						assertNull(reference.search(str, i), pattern + " @ " + i + " in " + line);
+					}
+				}
+			}
+		}
+	}
+}
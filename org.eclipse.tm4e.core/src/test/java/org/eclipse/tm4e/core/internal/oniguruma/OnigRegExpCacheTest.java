@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.eclipse.tm4e.core.TMException;
+import org.junit.jupiter.api.Test;
+
+class OnigRegExpCacheTest {
+
+	@Test
+	void testRegExpsAreShared() {
+		final var statsBefore = OnigRegExpCache.getStats();
+		final var regExp = OnigRegExpCache.get("OnigRegExpCacheTest\\s+(a|b)");
+		assertSame(regExp, OnigRegExpCache.get(new String("OnigRegExpCacheTest\\s+(a|b)")));
+		assertNotSame(regExp, OnigRegExpCache.get("OnigRegExpCacheTest\\s+(a|c)"));
+
+		final var stats = OnigRegExpCache.getStats().minus(statsBefore);
+		assertEquals(1, stats.hitCount());
+		assertEquals(2, stats.missCount());
+	}
+
+	@Test
+	void testInvalidPattern() {
+		assertThrows(TMException.class, () -> OnigRegExpCache.get("OnigRegExpCacheTest("));
+		assertThrows(TMException.class, () -> OnigRegExpCache.get("OnigRegExpCacheTest("));
+	}
+}
@@ -50,4 +50,62 @@ void testOnigRegExpCaching() {
 		assertEquals("MAKECMDGOALS", line.substring(result.locationAt(0), result.locationAt(0) + result.lengthAt(0)));
 		assertEquals("MAKECMDGOALS", line.substring(result.locationAt(1), result.locationAt(1) + result.lengthAt(1)));
 	}
+
+	/**
+	 * Tests that searches are memoized per string and shared by regexps with the same pattern
+	 */
+	@Test
+	void testOnigRegExpSearchMemo() {
+		final var regexp1 = new OnigRegExp("\\$\\(\\w+");
+		final var regexp2 = new OnigRegExp("\\$\\(\\w+");
+
+		final var onigLine = OnigString.of("ifeq (version,$(firstword $(MAKECMDGOALS))\n");
+
+		final var result = regexp1.search(onigLine, 0);
+		assertNotNull(result);
+		assertEquals(14, result.locationAt(0));
+		assertSame(result, regexp2.search(onigLine, 5));
+		assertSame(result, regexp2.search(onigLine, 14));
+
+		final var nextResult = regexp2.search(onigLine, 15);
+		assertNotNull(nextResult);
+		assertEquals(26, nextResult.locationAt(0));
+		assertSame(nextResult, regexp1.search(onigLine, 20));
+		assertNull(regexp1.search(onigLine, 27));
+		assertNull(regexp2.search(onigLine, 30));
+
+		// searching before the memoized position must not use the memo
+		assertEquals(14, regexp1.search(onigLine, 0).locationAt(0));
+
+		// the memo is per string
+		final var otherResult = regexp1.search(OnigString.of("$(firstword)"), 0);
+		assertNotNull(otherResult);
+		assertEquals(0, otherResult.locationAt(0));
+	}
+
+	/**
+	 * Tests that a prefix is searched as if the string ended after it
+	 */
+	@Test
+	void testOnigRegExpSearchPrefix() {
+		final var line = "é foo(bar) baz\n";
+		final var onigLine = OnigString.of(line);
+		final var prefix = onigLine.prefix(10);
+		assertEquals(10, prefix.charsCount);
+		assertEquals(onigLine.getByteIndexOfChar(10), prefix.bytesCount);
+		assertEquals(10, prefix.getCharIndexOfByte(prefix.bytesCount));
+
+		final var endAnchored = new OnigRegExp("\\w+\\)$");
+		assertNull(endAnchored.search(onigLine, 0));
+		var result = endAnchored.search(prefix, 0);
+		assertNotNull(result);
+		assertEquals(6, prefix.getCharIndexOfByte(result.locationAt(0)));
+
+		final var lookahead = new OnigRegExp("bar(?=\\) baz)");
+		assertNotNull(lookahead.search(onigLine, 0));
+		assertNull(lookahead.search(prefix, 0));
+
+		result = new OnigRegExp("baz").search(prefix, 0);
+		assertNull(result);
+	}
 }
@@ -2,6 +2,9 @@
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import org.junit.jupiter.api.Test;
 
 class OnigStringTest {
@@ -144,4 +147,53 @@ void testMixedMultiByteString() {
 		assertEquals(10, onigString.getCharIndexOfByte(16)); // does not throw exception, because of internal workaround
 		assertThrows(ArrayIndexOutOfBoundsException.class, () -> onigString.getCharIndexOfByte(17));
 	}
+
+	@Test
+	void testLongMixedMultiByteString() {
+		final var string = "abc áé 漢字 \uD83D\uDE00 xyz ".repeat(20) + "\uD800 end";
+		for (final OnigString onigString : new OnigString[] { OnigString.of(string), OnigString.ofReusableBuffer(string) }) {
+			assertInstanceOf(OnigString.MultiByteString.class, onigString);
+			final byte[] expectedBytes = string.getBytes(StandardCharsets.UTF_8);
+			assertEquals(expectedBytes.length, onigString.bytesCount);
+			assertArrayEquals(expectedBytes, Arrays.copyOf(onigString.bytesUTF8, onigString.bytesCount));
+
+			int byteIndex = 0;
+			for (int charIndex = 0; charIndex < string.length(); charIndex++) {
+				final char ch = string.charAt(charIndex);
+				if (Character.isLowSurrogate(ch) && Character.isHighSurrogate(string.charAt(charIndex - 1)))
+					continue;
+				assertEquals(byteIndex, onigString.getByteIndexOfChar(charIndex));
+				final int charLenInBytes = Character.isHighSurrogate(ch) && charIndex + 1 < string.length()
+						&& Character.isLowSurrogate(string.charAt(charIndex + 1))
+								? 4
+								: String.valueOf(ch).getBytes(StandardCharsets.UTF_8).length;
+				for (int i = 0; i < charLenInBytes; i++) {
+					assertEquals(charIndex, onigString.getCharIndexOfByte(byteIndex + i));
+				}
+				byteIndex += charLenInBytes;
+			}
+			assertEquals(string.length(), onigString.getCharIndexOfByte(onigString.bytesCount));
+			assertEquals(onigString.bytesCount, onigString.getByteIndexOfChar(string.length()));
+			onigString.release();
+		}
+	}
+
+	@Test
+	void testReusableBuffer() {
+		final var first = OnigString.ofReusableBuffer("first");
+		final var nested = OnigString.ofReusableBuffer("nested");
+		assertNotSame(first.bytesUTF8, nested.bytesUTF8, "buffer in use must not be shared");
+		assertEquals(nested.bytesCount, nested.bytesUTF8.length);
+		nested.release();
+		first.release();
+
+		final var second = OnigString.ofReusableBuffer("second");
+		assertSame(first.bytesUTF8, second.bytesUTF8, "released buffer must be reused");
+		assertEquals(6, second.bytesCount);
+		second.release();
+
+		final var large = OnigString.ofReusableBuffer("x".repeat(100_000));
+		assertEquals(large.bytesCount, large.bytesUTF8.length, "large strings must not be encoded into the buffer");
+		large.release();
+	}
 }
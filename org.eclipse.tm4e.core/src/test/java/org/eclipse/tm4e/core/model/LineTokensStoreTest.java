@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static org.eclipse.tm4e.core.registry.IGrammarSource.fromResource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.internal.grammar.StateStack;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+class LineTokensStoreTest {
+
+	@Test
+	void testInsertRemoveAndReset() {
+		final var store = new LineTokensStore(2);
+		store.insertLines(0, 3);
+		assertEquals(3, store.size());
+		for (int i = 0; i < 3; i++) {
+			assertFalse(store.hasTokens(i));
+			assertSame(StateStack.NULL, store.getStartState(i));
+			assertNull(store.getEndState(i));
+		}
+
+		store.setTokens(0, List.of(new TMToken(0, "a")), StateStack.NULL);
+		store.setTokens(2, List.of(new TMToken(0, "c")), StateStack.NULL);
+
+		// insert lines in between, exceeding the initial capacity
+		store.insertLines(1, 20);
+		assertEquals(23, store.size());
+		assertEquals(List.of(new TMToken(0, "a")), store.getTokens(0));
+		assertNull(store.getTokens(1));
+		assertEquals(List.of(new TMToken(0, "c")), store.getTokens(22));
+
+		store.removeLines(1, 21);
+		assertEquals(2, store.size());
+		assertEquals(List.of(new TMToken(0, "a")), store.getTokens(0));
+		assertEquals(List.of(new TMToken(0, "c")), store.getTokens(1));
+
+		store.resetLines(0, 1);
+		assertNull(store.getTokens(0));
+		assertNull(store.getEndState(0));
+		assertNull(store.getTokens(2));
+		assertNull(store.getTokens(-1));
+	}
+
+	/**
+	 * Applies random edits to the store and to an {@link ArrayList} and compares the results.
+	 */
+	@Test
+	void testRandomEdits() {
+		final var random = new Random(42);
+		final var store = new LineTokensStore(0);
+		final var expected = new ArrayList<String>();
+		int nextLineId = 0;
+		for (int i = 0; i < 2_000; i++) {
+			final int lineIndex = random.nextInt(expected.size() + 1);
+			if (random.nextInt(3) > 0 || lineIndex == expected.size()) {
+				final int count = 1 + random.nextInt(10);
+				store.insertLines(lineIndex, count);
+				for (int j = 0; j < count; j++) {
+					final var type = "line" + nextLineId++;
+					expected.add(lineIndex + j, type);
+					store.setTokens(lineIndex + j, List.of(new TMToken(0, type)), StateStack.NULL);
+				}
+			} else {
+				final int count = 1 + random.nextInt(Math.min(10, expected.size() - lineIndex));
+				store.removeLines(lineIndex, count);
+				expected.subList(lineIndex, lineIndex + count).clear();
+			}
+		}
+
+		assertEquals(expected.size(), store.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(List.of(new TMToken(0, expected.get(i))), store.getTokens(i));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> store.getStartState(expected.size()));
+	}
+
+	@Test
+	void testTokensArePacked() {
+		final var store = new LineTokensStore(10);
+		store.insertLines(0, 2);
+		store.setTokens(0, List.of(new TMToken(0, "keyword"), new TMToken(5, "string")), StateStack.NULL);
+		store.setTokens(1, List.of(new TMToken(0, "string"), new TMToken(3, "")), StateStack.NULL);
+
+		final var line0 = store.getTokensPacked(0);
+		final var line1 = store.getTokensPacked(1);
+		assertNotNull(line0);
+		assertNotNull(line1);
+		assertEquals(4, line0.length);
+		assertEquals(5, line0[2]);
+		assertEquals("keyword", store.getTokenType(line0[1]));
+		assertEquals("string", store.getTokenType(line0[3]));
+		// token types are shared across lines
+		assertEquals(line0[3], line1[1]);
+		assertEquals("", store.getTokenType(line1[3]));
+
+		// the returned arrays are copies
+		line0[0] = 42;
+		assertEquals(0, store.getTokens(0).get(0).startIndex);
+	}
+
+	@Test
+	void testStatesAreInterned() {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+		final var state1 = grammar.tokenizeLine("/* comment").getRuleStack();
+		final var state2 = grammar.tokenizeLine("/* other comment").getRuleStack();
+		assertNotSame(state1, state2);
+		assertEquals(state1, state2);
+
+		final var store = new LineTokensStore(10);
+		store.insertLines(0, 2);
+		store.setTokens(0, List.of(new TMToken(0, "")), state1);
+		store.setTokens(1, List.of(new TMToken(0, "")), state2);
+		assertSame(store.getEndState(0), store.getEndState(1));
+
+		store.setStartState(1, state2);
+		assertSame(store.getEndState(0), store.getStartState(1));
+	}
+}
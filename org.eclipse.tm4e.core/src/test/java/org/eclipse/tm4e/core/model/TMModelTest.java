@@ -12,7 +12,16 @@
 import static org.eclipse.tm4e.core.registry.IGrammarSource.fromResource;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.internal.grammar.StateStack;
 import org.eclipse.tm4e.core.model.ITMModel.BackgroundTokenizationState;
 import org.eclipse.tm4e.core.registry.Registry;
@@ -67,13 +76,218 @@ public String getLineText(final int lineIndex) throws Exception {
 			assertEquals(BackgroundTokenizationState.COMPLETED, tmModel.getBackgroundTokenizationState());
 
 			for (int i = 1; i < textLines.length; i++) {
-				assertNotEquals(StateStack.NULL, tmModel.lines.get(i).startState, "Line " + i + " is expected to be up-to-date");
+				assertNotEquals(StateStack.NULL, tmModel.lines.getStartState(i), "Line " + i + " is expected to be up-to-date");
 			}
 			for (int i = 0; i < textLines.length; i++) {
-				assertNotNull(tmModel.lines.get(i).tokens, "Line " + i + " is expected to be up-to-date");
+				assertTrue(tmModel.lines.hasTokens(i), "Line " + i + " is expected to be up-to-date");
 			}
 		} finally {
 			tmModel.dispose();
 		}
 	}
+
+	@Test
+	void testVisibleLinesAreTokenizedFirst() throws InterruptedException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		// the visible lines are part of a multi-line comment, thus their approximated start state is wrong
+		final var textLines = new ArrayList<String>();
+		textLines.add("/*");
+		for (int i = 0; i < 2_000; i++) {
+			textLines.add("var x = " + i + ";");
+		}
+		textLines.add("*/");
+		textLines.add("var y = 'foo';");
+
+		final var tmModel = new TMModel(textLines.size()) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				return textLines.get(lineIndex);
+			}
+		};
+
+		try {
+			tmModel.setGrammar(grammar);
+			tmModel.setVisibleRange(1_500, 1_509);
+
+			final var events = new ArrayList<ModelTokensChangedEvent>();
+			final var lastLineTokenized = new CountDownLatch(1);
+			tmModel.addModelTokensChangedListener(event -> {
+				synchronized (events) {
+					events.add(event);
+				}
+				if (event.ranges.stream().anyMatch(range -> range.toLineNumber == textLines.size()))
+					lastLineTokenized.countDown();
+			});
+			assertTrue(lastLineTokenized.await(10, TimeUnit.SECONDS));
+
+			synchronized (events) {
+				assertEquals(List.of(new Range(1_501, 1_510)), events.get(0).ranges);
+			}
+
+			// the tokens of the visible lines were corrected
+			assertEquals(tokenize(grammar, textLines), getLineTokens(tmModel));
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	@Test
+	void testRevalidateAfterEdits() throws InterruptedException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		final var textLines = new ArrayList<String>();
+		for (int i = 0; i < 1_000; i++) {
+			textLines.add("var x = " + i + ";");
+		}
+
+		final var tmModel = new TMModel(textLines.size()) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				synchronized (textLines) {
+					return textLines.get(lineIndex);
+				}
+			}
+		};
+
+		try {
+			tmModel.setGrammar(grammar);
+			tmModel.addModelTokensChangedListener(event -> {
+			});
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			// edit not changing the state of the following lines
+			synchronized (textLines) {
+				textLines.set(10, "var y = 10;");
+			}
+			tmModel.onLinesReplaced(10, 1, 1);
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			// edits opening/closing a multi-line comment, which changes the state of the following lines
+			synchronized (textLines) {
+				textLines.set(20, "/* start");
+			}
+			tmModel.onLinesReplaced(20, 1, 1);
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			synchronized (textLines) {
+				textLines.add(500, "end */");
+				textLines.add(501, "var z;");
+			}
+			tmModel.onLinesReplaced(500, 0, 2);
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			// multi-line edit where only the last line changes the state of the following lines
+			synchronized (textLines) {
+				textLines.set(600, "var a;");
+				textLines.set(601, "var b; /*");
+			}
+			tmModel.onLinesReplaced(600, 2, 2);
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			// edits at distant lines applied in one go
+			synchronized (textLines) {
+				textLines.set(700, "var c;");
+				textLines.set(800, "var d; /*");
+			}
+			tmModel.onLinesReplaced(700, 1, 1);
+			tmModel.onLinesReplaced(800, 1, 1);
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			synchronized (textLines) {
+				textLines.subList(20, 30).clear();
+			}
+			tmModel.onLinesReplaced(20, 10, 0);
+			assertTokensEventually(tmModel, grammar, textLines);
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	@Test
+	void testEditDuringRevalidation() throws InterruptedException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		final var textLines = new ArrayList<String>();
+		for (int i = 0; i < 3_000; i++) {
+			textLines.add("var x = " + i + ";");
+		}
+
+		final var editDuringRevalidation = new AtomicBoolean();
+		final var tmModel = new TMModel(textLines.size()) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				if (lineIndex == 300 && editDuringRevalidation.compareAndSet(true, false)) {
+					// the edit arrives while the lines following the previous edit are revalidated
+					synchronized (textLines) {
+						textLines.set(10, "/* start again");
+					}
+					onLinesReplaced(10, 1, 1);
+				}
+				synchronized (textLines) {
+					return textLines.get(lineIndex);
+				}
+			}
+		};
+
+		try {
+			tmModel.setGrammar(grammar);
+			tmModel.addModelTokensChangedListener(event -> {
+			});
+			assertTokensEventually(tmModel, grammar, textLines);
+
+			editDuringRevalidation.set(true);
+			synchronized (textLines) {
+				textLines.set(10, "/* start");
+			}
+			tmModel.onLinesReplaced(10, 1, 1);
+			assertTokensEventually(tmModel, grammar, textLines);
+			assertFalse(editDuringRevalidation.get());
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	private static void assertTokensEventually(final TMModel tmModel, final IGrammar grammar, final List<String> textLines)
+			throws InterruptedException {
+		final List<List<String>> expected;
+		synchronized (textLines) {
+			expected = tokenize(grammar, textLines);
+		}
+		for (int i = 0; i < 500 && !expected.equals(getLineTokens(tmModel)); i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, getLineTokens(tmModel));
+	}
+
+	private static List<List<String>> tokenize(final IGrammar grammar, final List<String> textLines) {
+		final var tokenizer = new TMTokenizationSupport(grammar);
+		final var result = new ArrayList<List<String>>();
+		var state = tokenizer.getInitialState();
+		for (final var textLine : textLines) {
+			final var lineTokens = tokenizer.tokenize(textLine, state);
+			result.add(normalize(lineTokens.getTokens()));
+			state = lineTokens.getEndState();
+		}
+		return result;
+	}
+
+	private static List<List<String>> getLineTokens(final TMModel tmModel) {
+		final var result = new ArrayList<List<String>>();
+		for (int i = 0; i < tmModel.getNumberOfLines(); i++) {
+			final var lineTokens = tmModel.getLineTokens(i);
+			result.add(lineTokens == null ? List.of() : normalize(lineTokens));
+		}
+		return result;
+	}
+
+	/**
+	 * The order of the segments of a token type depends on the order in which the TMTokenizationSupport encountered
+	 * the scopes, hence the segments are sorted for comparison.
+	 */
+	private static List<String> normalize(final List<TMToken> tokens) {
+		return tokens.stream()
+				.map(token -> token.startIndex + ":" + Stream.of(token.type.split("\\.")).sorted().collect(Collectors.joining(".")))
+				.toList();
+	}
 }
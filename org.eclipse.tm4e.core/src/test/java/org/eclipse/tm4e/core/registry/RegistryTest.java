@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.registry;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.Data;
+import org.junit.jupiter.api.Test;
+
+class RegistryTest {
+
+	/**
+	 * @param readGrammars collects the scope names of the grammars read by the registry
+	 */
+	private static IRegistryOptions createRegistryOptions(final Set<String> readGrammars, final boolean loadOnDemand) {
+		final var testThread = Thread.currentThread();
+		return new IRegistryOptions() {
+			@Override
+			public @Nullable IGrammarSource getGrammarSource(final String scopeName) {
+				assertSame(testThread, Thread.currentThread(), "grammar sources are looked up on the calling thread");
+				final var source = switch (scopeName) {
+					case "source.embedding" -> IGrammarSource.fromString(IGrammarSource.ContentType.JSON, """
+						{
+							"scopeName": "source.embedding",
+							"patterns": [
+								{ "begin": "<js>", "end": "</js>", "patterns": [ { "include": "source.js" } ] },
+								{ "begin": "<css>", "end": "</css>", "patterns": [ { "include": "source.css" } ] },
+								{ "begin": "<yaml>", "end": "</yaml>", "patterns": [ { "include": "source.yaml" } ] },
+								{ "include": "source.missing" }
+							]
+						}""");
+					case "source.css" -> IGrammarSource.fromResource(Data.class, "css.json");
+					case "source.js" -> IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage.json");
+					case "source.yaml" -> IGrammarSource.fromResource(Data.class, "yaml.tmLanguage.json");
+					default -> null;
+				};
+				return source == null ? null : new IGrammarSource() {
+					@Override
+					public Reader getReader() throws IOException {
+						readGrammars.add(scopeName);
+						return source.getReader();
+					}
+
+					@Override
+					public String getFilePath() {
+						return source.getFilePath();
+					}
+
+					@Override
+					public ContentType getContentType() {
+						return source.getContentType();
+					}
+				};
+			}
+
+			@Override
+			public boolean loadEmbeddedGrammarsOnDemand() {
+				return loadOnDemand;
+			}
+		};
+	}
+
+	@Test
+	void testLoadGrammarWithDependencies() {
+		final Set<String> readGrammars = ConcurrentHashMap.newKeySet();
+		final var registry = new Registry(createRegistryOptions(readGrammars, false));
+
+		final var grammar = castNonNull(registry.loadGrammar("source.embedding"));
+		assertEquals(Set.of("source.embedding", "source.js", "source.css", "source.yaml"), readGrammars);
+
+		final var jsTokens = grammar.tokenizeLine("<js>var a").getTokens();
+		assertTrue(List.of(jsTokens).stream().anyMatch(token -> token.getScopes().contains("storage.type.js")));
+		final var cssTokens = grammar.tokenizeLine("<css>a{}").getTokens();
+		assertTrue(List.of(cssTokens).stream().anyMatch(token -> token.getScopes().contains("meta.selector.css")));
+		final var yamlTokens = grammar.tokenizeLine("<yaml>a: b").getTokens();
+		assertTrue(List.of(yamlTokens).stream().anyMatch(token -> token.getScopes().contains("entity.name.tag.yaml")));
+	}
+
+	@Test
+	void testLoadEmbeddedGrammarsOnDemand() {
+		final Set<String> readGrammars = ConcurrentHashMap.newKeySet();
+		final var registry = new Registry(createRegistryOptions(readGrammars, true));
+
+		final var grammar = castNonNull(registry.loadGrammar("source.embedding"));
+		assertEquals(Set.of("source.embedding"), readGrammars);
+
+		grammar.tokenizeLine("plain text");
+		assertEquals(Set.of("source.embedding"), readGrammars);
+
+		final var cssTokens = grammar.tokenizeLine("<css>a{}").getTokens();
+		assertTrue(List.of(cssTokens).stream().anyMatch(token -> token.getScopes().contains("meta.selector.css")));
+		assertEquals(Set.of("source.embedding", "source.css"), readGrammars);
+
+		final var jsTokens = grammar.tokenizeLine("<js>var a").getTokens();
+		assertTrue(List.of(jsTokens).stream().anyMatch(token -> token.getScopes().contains("storage.type.js")));
+		assertEquals(Set.of("source.embedding", "source.css", "source.js"), readGrammars);
+
+		// precompiling the grammar loads all remaining included grammars
+		grammar.precompile();
+		assertEquals(Set.of("source.embedding", "source.css", "source.js", "source.yaml"), readGrammars);
+		final var yamlTokens = grammar.tokenizeLine("<yaml>a: b").getTokens();
+		assertTrue(List.of(yamlTokens).stream().anyMatch(token -> token.getScopes().contains("entity.name.tag.yaml")));
+	}
+}
@@ -13,6 +13,7 @@
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.annotation.Nullable;
@@ -84,6 +85,16 @@ public interface IGrammarRegistryManager {
 	@Nullable
 	IGrammar getGrammarForFileType(String fileType);
 
+	/**
+	 * Loads and precompiles the grammars associated with the given content types in the background, e.g. for the types
+	 * of the files contained in the workspace, so that opening the first file of a type does not stutter.
+	 *
+	 * @return a future completing once all grammars are precompiled
+	 *
+	 * @see IGrammar#precompile()
+	 */
+	CompletableFuture<Void> precompileGrammarsFor(Collection<IContentType> contentTypes);
+
 	/**
 	 * Returns the list of content types bound with the given scope name and null otherwise.
 	 *
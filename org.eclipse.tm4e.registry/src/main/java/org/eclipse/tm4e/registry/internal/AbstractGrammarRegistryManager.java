@@ -14,16 +14,22 @@
 
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.*;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarSnapshot;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
 import org.eclipse.tm4e.core.registry.IRegistryOptions;
 import org.eclipse.tm4e.core.registry.Registry;
@@ -73,6 +79,22 @@ public Reader getReader() throws IOException {
 				public String getFilePath() {
 					return defaultIfNull(info.getPath(), "unknown");
 				}
+
+				@Override
+				public @Nullable ByteBuffer getSnapshot() throws IOException {
+					final String pluginId = info.getPluginId();
+					if (pluginId == null)
+						return IGrammarSource.fromFile(Path.of(info.getPath())).getSnapshot();
+
+					// snapshots may be packaged next to the grammars of plug-ins, see RawGrammarSnapshot#main, and are ignored
+					// by RawGrammarReader if the grammar was modified since
+					final var snapshot = new URL("platform:/plugin/" + pluginId + "/" + info.getPath() + RawGrammarSnapshot.FILE_SUFFIX);
+					try (var in = snapshot.openStream()) {
+						return ByteBuffer.wrap(in.readAllBytes());
+					} catch (final FileNotFoundException ex) {
+						return null;
+					}
+				}
 			};
 		}
 
@@ -151,6 +173,18 @@ public IGrammar getGrammarForFileType(String fileType) {
 		return null;
 	}
 
+	@Override
+	public CompletableFuture<Void> precompileGrammarsFor(final Collection<IContentType> contentTypes) {
+		return CompletableFuture.allOf(contentTypes.stream()
+				.map(contentType -> CompletableFuture.runAsync(() -> {
+					final var grammar = getGrammarFor(new IContentType[] { contentType });
+					if (grammar != null) {
+						grammar.precompile();
+					}
+				}))
+				.toArray(CompletableFuture[]::new));
+	}
+
 	@Nullable
 	@Override
 	public IGrammarDefinition[] getDefinitions() {
@@ -162,11 +196,13 @@ public IGrammarDefinition[] getDefinitions() {
 
 	/**
 	 * Returns the loaded grammar from the given <code>scopeName</code> and null otherwise.
+	 * <p>
+	 * Synchronized since grammars may be loaded by {@link #precompileGrammarsFor(Collection)} in the background.
 	 *
 	 * @return the loaded grammar from the given <code>scopeName</code> and null otherwise.
 	 */
 	@Nullable
-	private IGrammar getGrammar(@Nullable final String scopeName) {
+	private synchronized IGrammar getGrammar(@Nullable final String scopeName) {
 		if (scopeName == null) {
 			return null;
 		}
@@ -40,6 +40,7 @@
 import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextEvent;
 import org.eclipse.jface.text.TextPresentation;
@@ -181,7 +182,7 @@ public TMPresentationReconciler() {
 		}
 	}
 
-	private final class TextViewerListener implements ITextInputListener, ITextListener {
+	private final class TextViewerListener implements ITextInputListener, ITextListener, IViewportListener {
 		@Override
 		public void inputDocumentAboutToBeChanged(final @Nullable IDocument oldDoc, final @Nullable IDocument newDoc) {
 			if (oldDoc == null)
@@ -190,6 +191,7 @@ public void inputDocumentAboutToBeChanged(final @Nullable IDocument oldDoc, fina
 			final var viewer = TMPresentationReconciler.this.viewer;
 			if (viewer != null) {
 				viewer.removeTextListener(TMPresentationReconciler.this.viewerListener);
+				viewer.removeViewportListener(TMPresentationReconciler.this.viewerListener);
 			}
 			TMModelManager.INSTANCE.disconnect(oldDoc);
 			listeners.forEach(l -> l.onUninstalled());
@@ -207,6 +209,7 @@ public void inputDocumentChanged(final @Nullable IDocument oldDoc, final @Nullab
 			listeners.forEach(l -> l.onInstalled(viewer, newDoc));
 			try {
 				viewer.addTextListener(TMPresentationReconciler.this.viewerListener);
+				viewer.addViewportListener(TMPresentationReconciler.this.viewerListener);
 
 				// update the grammar
 				IGrammar newDocGrammar;
@@ -242,6 +245,7 @@ public void inputDocumentChanged(final @Nullable IDocument oldDoc, final @Nullab
 				// connect a TextMate model to the new document
 				final var docModel = TMModelManager.INSTANCE.connect(newDoc);
 				docModel.setGrammar(newDocGrammar);
+				docModel.setVisibleRange(viewer.getTopIndex(), viewer.getBottomIndex());
 				docModel.addModelTokensChangedListener(modelsTokensChangedListener);
 			} catch (final CoreException ex) {
 				Platform.getLog(Platform.getBundle(TMEclipseRegistryPlugin.PLUGIN_ID))
@@ -307,6 +311,22 @@ public void textChanged(final @Nullable TextEvent event) {
 			}
 		}
 
+		/**
+		 * Lets the TextMate model tokenize the lines scrolled into view first.
+		 */
+		@Override
+		public void viewportChanged(final int verticalOffset) {
+			final var viewer = TMPresentationReconciler.this.viewer;
+			if (viewer == null || colorizer == null)
+				return;
+
+			final IDocument doc = viewer.getDocument();
+			if (doc == null)
+				return;
+
+			TMModelManager.INSTANCE.connect(doc).setVisibleRange(viewer.getTopIndex(), viewer.getBottomIndex());
+		}
+
 		IRegion computeRegionToRedraw(final TextEvent event, final IDocument doc) {
 			final IRegion region = event.getOffset() == 0 && event.getLength() == 0 && event.getText() == null
 					? new Region(0, doc.getLength()) // redraw state change, damage the whole document